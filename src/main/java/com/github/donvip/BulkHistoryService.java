@@ -0,0 +1,113 @@
+package com.github.donvip;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.github.donvip.GpHistoryQuery.GpHistory;
+
+/**
+ * Catalog-scale retrieval of GP_HISTORY records: queries all objects by epoch
+ * time slices instead of one object at a time, and partitions the records by
+ * object id into the {@link HistoryStore}.
+ */
+@Service
+public class BulkHistoryService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkHistoryService.class);
+
+    @Value("${bulkStartDate:#{null}}")
+    private Instant bulkStartDate;
+
+    @Value("${bulkEndDate:#{null}}")
+    private Instant bulkEndDate;
+
+    @Value("${bulkSliceHours:24}")
+    private long bulkSliceHours;
+
+    @Value("${bulkMaxAltitude:#{null}}")
+    private Double bulkMaxAltitude;
+
+    @Value("${bulkObjectIdPrefix:#{null}}")
+    private String bulkObjectIdPrefix;
+
+    @Value("${bulkSpillThreshold:200000}")
+    private int bulkSpillThreshold;
+
+    @Value("${minAltitude:0.0}")
+    private double minAltitude;
+
+    @Autowired
+    private SpaceTrackService spaceTrack;
+
+    @Autowired
+    private HistoryStore historyStore;
+
+    public boolean isEnabled() {
+        return bulkStartDate != null && bulkEndDate != null;
+    }
+
+    /**
+     * Fetches all records having an epoch between {@code bulkStartDate} and
+     * {@code bulkEndDate}, one time slice at a time. Records are buffered per
+     * object and spilled to the history store, sorted by epoch, whenever the
+     * buffer exceeds {@code bulkSpillThreshold} records. Unless records are
+     * filtered by altitude, the window is then recorded as complete for all
+     * objects found.
+     *
+     * @return ids of all objects found in the epoch window
+     */
+    public Set<Integer> fetchCatalog()
+            throws JsonParseException, JsonMappingException, IOException, InterruptedException {
+        Set<Integer> ids = new TreeSet<>();
+        Map<Integer, List<GpHistory>> buffer = new HashMap<>();
+        int buffered = 0;
+        Duration slice = Duration.ofHours(bulkSliceHours);
+        for (Instant from = bulkStartDate; from.isBefore(bulkEndDate); from = from.plus(slice)) {
+            Instant to = from.plus(slice).isBefore(bulkEndDate) ? from.plus(slice) : bulkEndDate;
+            logger.info("Fetching history of all objects between {} and {}", from, to);
+            List<GpHistory> records = spaceTrack.fetchHistorySlice(from, to, minAltitude, bulkMaxAltitude,
+                    bulkObjectIdPrefix);
+            logger.info("Found {} gp_history records between {} and {}", records.size(), from, to);
+            for (GpHistory gp : records) {
+                buffer.computeIfAbsent(gp.getCatalogNumber(), k -> new ArrayList<>()).add(gp);
+                ids.add(gp.getCatalogNumber());
+            }
+            buffered += records.size();
+            if (buffered >= bulkSpillThreshold) {
+                spill(buffer);
+                buffered = 0;
+            }
+        }
+        spill(buffer);
+        if (minAltitude == 0.0 && bulkMaxAltitude == null) {
+            // Slices are half-open, and Space-Track epochs have a microsecond precision
+            for (Integer id : ids) {
+                historyStore.cover(id, bulkStartDate, bulkEndDate.minusNanos(1000));
+            }
+        }
+        logger.info("Found {} objects between {} and {}", ids.size(), bulkStartDate, bulkEndDate);
+        return ids;
+    }
+
+    private void spill(Map<Integer, List<GpHistory>> buffer) throws IOException {
+        for (Map.Entry<Integer, List<GpHistory>> e : buffer.entrySet()) {
+            historyStore.merge(e.getKey(), e.getValue());
+        }
+        buffer.clear();
+    }
+}
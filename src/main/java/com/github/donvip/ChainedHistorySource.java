@@ -0,0 +1,109 @@
+package com.github.donvip;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import javax.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import com.github.donvip.GpHistoryQuery.GpHistory;
+
+/**
+ * Read-through chain of history sources, configured by {@code historySources}.
+ * Sources are queried in order until one of them knows the object. When the
+ * {@link HistoryStore} is part of the chain, it caches the sources after it:
+ * the parts of the requested window it does not cover yet, including the time
+ * elapsed since its last update, are fetched from them and merged into it
+ * before it answers.
+ */
+@Primary
+@Service
+public class ChainedHistorySource implements HistorySource {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChainedHistorySource.class);
+
+    @Value("${historySources:#{T(java.util.Collections).emptyList()}}")
+    private List<String> historySources;
+
+    @Autowired
+    private SpaceTrackService spaceTrack;
+
+    @Autowired
+    private HistoryStore historyStore;
+
+    @Autowired
+    private FileHistorySource files;
+
+    @Autowired
+    private BulkHistoryService bulkHistory;
+
+    private final List<HistorySource> chain = new ArrayList<>();
+
+    @PostConstruct
+    public void init() {
+        List<String> names = new ArrayList<>(historySources);
+        if (names.isEmpty()) {
+            // Bulk catalog mode fills the history store, other modes query Space-Track directly
+            names.add(bulkHistory.isEnabled() ? "store" : "spacetrack");
+        }
+        for (String name : names) {
+            switch (name.trim().toLowerCase(Locale.ENGLISH)) {
+            case "store":
+                chain.add(historyStore);
+                break;
+            case "files":
+                chain.add(files);
+                break;
+            case "spacetrack":
+                chain.add(spaceTrack);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown history source: " + name);
+            }
+        }
+        logger.info("History sources: {}", names);
+    }
+
+    @Override
+    public List<GpHistory> fetchHistory(Integer id, Instant startDate, Instant endDate, double minAltitude)
+            throws IOException, InterruptedException {
+        int store = chain.indexOf(historyStore);
+        for (int i = 0; i < (store >= 0 ? store : chain.size()); i++) {
+            List<GpHistory> history = chain.get(i).fetchHistory(id, startDate, endDate, minAltitude);
+            if (!history.isEmpty()) {
+                return history;
+            }
+        }
+        if (store < 0) {
+            return List.of();
+        }
+        List<HistorySource> behind = chain.subList(store + 1, chain.size());
+        if (!behind.isEmpty()) {
+            // Fill the windows not covered by the store yet, unfiltered as the store answers all requests
+            for (Instant[] gap : historyStore.gaps(id, startDate, endDate, Instant.now())) {
+                // Source bounds are excluded, and Space-Track epochs have a microsecond precision
+                Instant from = Instant.MIN.equals(gap[0]) ? null : gap[0].minusNanos(1000);
+                Instant to = gap[1].plusNanos(1000);
+                for (HistorySource source : behind) {
+                    List<GpHistory> history = source.fetchHistory(id, from, to, 0.0);
+                    if (!history.isEmpty()) {
+                        // Merge a copy: records may come from a cache, and are sorted in place
+                        historyStore.merge(id, new ArrayList<>(history));
+                        break;
+                    }
+                }
+                historyStore.cover(id, gap[0], gap[1]);
+            }
+        }
+        return historyStore.read(id, startDate, endDate, minAltitude);
+    }
+}
@@ -0,0 +1,175 @@
+package com.github.donvip;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.jfree.data.time.Millisecond;
+import org.jfree.data.time.RegularTimePeriod;
+import org.jfree.data.time.TimeSeries;
+import org.jfree.data.time.TimeSeriesCollection;
+import org.jfree.data.time.TimeSeriesDataItem;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.donvip.GpHistoryQuery.GpHistory;
+import com.github.donvip.TrackConsistencyChecker.TrackPoint;
+
+/**
+ * Builds apoapsis and periapsis datasets incrementally, one object history at a
+ * time, so that raw GP_HISTORY records can be released as soon as they have
+ * been added.
+ * <p>
+ * Records overridden to another object are added to the series of that object
+ * through an index of series per object id, or kept in compact form until the
+ * history of that object is added.
+ */
+class DatasetBuilder {
+
+    private static final Logger logger = LoggerFactory.getLogger(DatasetBuilder.class);
+
+    private final boolean distinguish;
+    private final boolean showApoapsis;
+    private final boolean showPeriapsis;
+    private final Map<Integer, Integer> overrides;
+    private final TrackConsistencyChecker checker;
+
+    private final TimeSeriesCollection apoapsis = new TimeSeriesCollection();
+    private final TimeSeriesCollection periapsis = new TimeSeriesCollection();
+    /** Apoapsis and periapsis series per object id */
+    private final Map<Integer, TimeSeries[]> index = new HashMap<>();
+    /** Overridden records waiting for the history of their object */
+    private final Map<Integer, List<TrackPoint>> pending = new HashMap<>();
+    /** Compact copy of all records, only kept to check track consistency */
+    private final List<TrackPoint> trackPoints;
+
+    /**
+     * @param distinguish if {@code true}, creates a single data set where apoapsis
+     *            and periapsis series have distinguished names. If {@code false},
+     *            creates two datasets where apoapsis and periapsis have the same
+     *            name. The use of two datasets allow to render the plot with the
+     *            same colors for both series.
+     * @param showApoapsis whether to add apoapsis points
+     * @param showPeriapsis whether to add periapsis points
+     * @param overrides manual reassignment of records (gp_id =&gt; object_id)
+     * @param checker track consistency checker used to reassign records
+     *            automatically, or {@code null}
+     */
+    DatasetBuilder(boolean distinguish, boolean showApoapsis, boolean showPeriapsis, Map<Integer, Integer> overrides,
+            TrackConsistencyChecker checker) {
+        this.distinguish = distinguish;
+        this.showApoapsis = showApoapsis;
+        this.showPeriapsis = showPeriapsis;
+        this.overrides = overrides;
+        this.checker = checker;
+        this.trackPoints = checker != null ? new ArrayList<>() : null;
+    }
+
+    /**
+     * Folds the history of an object into the datasets.
+     *
+     * @param objectId object id
+     * @param name series name prefix (object name or id)
+     * @param history GP_HISTORY records of the object
+     */
+    void add(Integer objectId, String name, List<GpHistory> history) {
+        String prefix = name.isEmpty() ? name : name + ' ';
+        TimeSeries[] series = {
+                new IdentifiedTimeSeries(objectId, prefix + (distinguish ? "Apoapsis" : ""), "Time", "Apoapsis"),
+                new IdentifiedTimeSeries(objectId, prefix + (distinguish ? "Periapsis" : ""), "Time", "Periapsis") };
+        index.put(objectId, series);
+
+        for (GpHistory gp : history) {
+            Integer target = overrides.getOrDefault(gp.getGpId(), objectId);
+            TrackPoint point = new TrackPoint(gp.getGpId(), target, gp.getEpoch().toInstant().toEpochMilli(),
+                    orNaN(gp.getApoapsis()), orNaN(gp.getPeriapsis()));
+            TimeSeries[] targetSeries = index.get(target);
+            if (targetSeries != null) {
+                addApoapsisAndPeriapsis(targetSeries, point);
+            } else {
+                pending.computeIfAbsent(target, k -> new ArrayList<>()).add(point);
+            }
+            // Records missing a value are plotted, but cannot be checked for track consistency
+            if (trackPoints != null && !Double.isNaN(point.apoapsis) && !Double.isNaN(point.periapsis)) {
+                trackPoints.add(point);
+            }
+        }
+        List<TrackPoint> waiting = pending.remove(objectId);
+        if (waiting != null) {
+            waiting.forEach(p -> addApoapsisAndPeriapsis(series, p));
+        }
+
+        apoapsis.addSeries(series[0]);
+        (distinguish ? apoapsis : periapsis).addSeries(series[1]);
+    }
+
+    /**
+     * @return the value, or {@code NaN} if it is missing
+     */
+    private static double orNaN(Double value) {
+        return value != null ? value : Double.NaN;
+    }
+
+    /**
+     * @return the value, or {@code null} if it is missing
+     */
+    private static Double orNull(double value) {
+        return Double.isNaN(value) ? null : Double.valueOf(value);
+    }
+
+    private void addApoapsisAndPeriapsis(TimeSeries[] series, TrackPoint p) {
+        String label = Integer.toString(p.gpId);
+        RegularTimePeriod date = new Millisecond(new Date(p.epoch));
+        if (showApoapsis) {
+            series[0].addOrUpdate(new LabeledTimeSeriesDataItem(date, orNull(p.apoapsis), label));
+        }
+        if (showPeriapsis) {
+            series[1].addOrUpdate(new LabeledTimeSeriesDataItem(date, orNull(p.periapsis), label));
+        }
+    }
+
+    /**
+     * Applies automatic reassignments, if enabled, and returns the datasets.
+     *
+     * @return the created datasets
+     */
+    List<TimeSeriesCollection> build() {
+        pending.forEach((id, points) -> logger.warn("Ignoring {} gp_history records overridden to unknown object {}",
+                points.size(), id));
+        pending.clear();
+        if (trackPoints != null) {
+            // Ignored records have no series to be moved from
+            trackPoints.removeIf(p -> !index.containsKey(p.objectId));
+            Map<Integer, Integer> reassignments = new TreeMap<>(checker.reassign(trackPoints));
+            reassignments.keySet().removeAll(overrides.keySet());
+            logger.info("Automatically reassigned {} inconsistent gp_history records: {}", reassignments.size(),
+                    reassignments);
+            if (!reassignments.isEmpty()) {
+                for (TrackPoint p : trackPoints) {
+                    Integer target = reassignments.get(p.gpId);
+                    if (target != null && index.containsKey(target)) {
+                        move(p, index.get(p.objectId), index.get(target));
+                    }
+                }
+            }
+            trackPoints.clear();
+        }
+        return distinguish ? List.of(apoapsis) : List.of(apoapsis, periapsis);
+    }
+
+    private void move(TrackPoint p, TimeSeries[] from, TimeSeries[] to) {
+        RegularTimePeriod date = new Millisecond(new Date(p.epoch));
+        String label = Integer.toString(p.gpId);
+        for (TimeSeries series : from) {
+            TimeSeriesDataItem item = series.getDataItem(date);
+            if (item instanceof LabeledTimeSeriesDataItem
+                    && label.equals(((LabeledTimeSeriesDataItem) item).getLabel())) {
+                series.delete(date);
+            }
+        }
+        addApoapsisAndPeriapsis(to, p);
+    }
+}
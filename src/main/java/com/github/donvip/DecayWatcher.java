@@ -0,0 +1,214 @@
+package com.github.donvip;
+
+import static java.util.Comparator.comparing;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.github.donvip.GpHistoryQuery.GpHistory;
+
+/**
+ * Keeps tracking a set of objects after the initial graph generation, polling
+ * Space-Track for new element sets at an interval adapted to each object's
+ * periapsis and decay rate, and updating graphs as new points arrive.
+ */
+@Service
+public class DecayWatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(DecayWatcher.class);
+
+    private static final double MILLIS_PER_DAY = 86_400_000.0;
+
+    @Value("${watch:false}")
+    private boolean watch;
+
+    @Value("${watchMinIntervalMinutes:10}")
+    private long minIntervalMinutes;
+
+    @Value("${watchMaxIntervalMinutes:1440}")
+    private long maxIntervalMinutes;
+
+    @Value("${watchMaxRequestsPerHour:60}")
+    private double maxRequestsPerHour;
+
+    @Value("${watchPollsBeforeReentry:10}")
+    private int pollsBeforeReentry;
+
+    @Value("${reentryAltitude:120.0}")
+    private double reentryAltitude;
+
+    @Value("${startDate:#{null}}")
+    private Instant startDate;
+
+    @Value("${endDate:#{null}}")
+    private Instant endDate;
+
+    @Value("${minAltitude:0.0}")
+    private double minAltitude;
+
+    @Autowired
+    private CelestrakService celestrak;
+
+    @Autowired
+    private SpaceTrackService spaceTrack;
+
+    @Autowired
+    private HistorySource historySource;
+
+    @Autowired
+    private GraphService graphService;
+
+    private static final class WatchedObject {
+        private final Integer id;
+        private final Instant nextPoll;
+
+        private WatchedObject(Integer id, Instant nextPoll) {
+            this.id = id;
+            this.nextPoll = nextPoll;
+        }
+    }
+
+    public boolean isEnabled() {
+        return watch;
+    }
+
+    public void watch() throws IOException, InterruptedException, SecurityException, ReflectiveOperationException {
+        Map<String, String[]> map = celestrak.getCelestrakMapping();
+        Map<Integer, String> names = new TreeMap<>();
+        Map<Integer, List<GpHistory>> histories = new TreeMap<>();
+        // Decayed objects are not polled, nor all objects once past endDate, but kept in graphs updated with new
+        // records of others
+        Set<Integer> watched = new TreeSet<>();
+        for (Integer id : graphService.getSatIdsFromSatIntDes(map)) {
+            // Same query as initial graph generation: served from cache
+            List<GpHistory> history = new ArrayList<>(
+                    historySource.fetchHistory(id, startDate, endDate, minAltitude));
+            if (history.isEmpty()) {
+                logger.error("Unable to watch satellite {} (empty history)", id);
+            } else {
+                names.put(id, GraphService.findObjectName(map, id, history));
+                histories.put(id, history);
+                if (hasDecayed(history)) {
+                    logger.info("Satellite {} has already decayed, not watching it", id);
+                } else if (endDate != null && !endDate.isAfter(Instant.now())) {
+                    logger.info("Satellite {} cannot get new records before end date {}, not watching it", id,
+                            endDate);
+                } else {
+                    watched.add(id);
+                }
+            }
+        }
+
+        Map<Integer, Duration> intervals = new HashMap<>();
+        PriorityQueue<WatchedObject> queue = new PriorityQueue<>(comparing(o -> o.nextPoll));
+        watched.forEach(id -> intervals.put(id, pollInterval(histories.get(id))));
+        Instant now = Instant.now();
+        watched.forEach(id -> queue.add(new WatchedObject(id, now.plus(budgetedInterval(id, intervals)))));
+
+        while (!queue.isEmpty()) {
+            WatchedObject o = queue.poll();
+            long wait = Duration.between(Instant.now(), o.nextPoll).toMillis();
+            if (wait > 0) {
+                logger.info("Next poll for satellite {} - {} at {}", o.id, names.get(o.id), o.nextPoll);
+                Thread.sleep(wait);
+            }
+            List<GpHistory> history = histories.get(o.id);
+            try {
+                Set<Integer> knownGpIds = history.stream().map(GpHistory::getGpId).collect(toSet());
+                List<GpHistory> newRecords = spaceTrack
+                        .pollHistory(o.id, history.get(history.size() - 1).getEpoch().toInstant(), endDate,
+                                minAltitude)
+                        .stream().filter(gp -> !knownGpIds.contains(gp.getGpId())).collect(toList());
+                if (!newRecords.isEmpty()) {
+                    logger.info("Found {} new gp_history records for satellite {} - {}", newRecords.size(), o.id,
+                            names.get(o.id));
+                    history.addAll(newRecords);
+                    graphService.updateGraphs(names, histories);
+                }
+            } catch (IOException e) {
+                // Transient Space-Track or network error: try again at next poll
+                logger.error("Failed to poll satellite {} - {}: {}", o.id, names.get(o.id), e.getMessage());
+                queue.add(new WatchedObject(o.id, Instant.now().plus(budgetedInterval(o.id, intervals))));
+                continue;
+            }
+            if (hasDecayed(history)) {
+                logger.info("Satellite {} - {} has decayed, no longer watching it", o.id, names.get(o.id));
+                intervals.remove(o.id);
+            } else {
+                intervals.put(o.id, pollInterval(history));
+                queue.add(new WatchedObject(o.id, Instant.now().plus(budgetedInterval(o.id, intervals))));
+            }
+        }
+    }
+
+    /**
+     * Returns the poll interval of an object, stretched if needed so that the
+     * polls of all watched objects stay within the Space-Track API budget.
+     */
+    private Duration budgetedInterval(Integer id, Map<Integer, Duration> intervals) {
+        double requestsPerHour = intervals.values().stream().mapToDouble(d -> 60.0 / Math.max(1, d.toMinutes()))
+                .sum();
+        Duration interval = intervals.get(id);
+        return requestsPerHour > maxRequestsPerHour
+                ? Duration.ofMillis((long) (interval.toMillis() * requestsPerHour / maxRequestsPerHour))
+                : interval;
+    }
+
+    /**
+     * Computes the poll interval of an object from its current periapsis and decay
+     * rate, in order to poll several times before the estimated reentry, and
+     * rarely for stable orbits.
+     */
+    private Duration pollInterval(List<GpHistory> history) {
+        double decayRate = decayRate(history);
+        long minutes = maxIntervalMinutes;
+        if (decayRate > 0) {
+            double daysToReentry = (history.get(history.size() - 1).getPeriapsis() - reentryAltitude) / decayRate;
+            minutes = (long) Math.min(maxIntervalMinutes, Math.max(0, daysToReentry) * 1440 / pollsBeforeReentry);
+        }
+        return Duration.ofMinutes(Math.max(minIntervalMinutes, minutes));
+    }
+
+    /**
+     * Estimates the periapsis decay rate of an object over the last week of
+     * records.
+     *
+     * @return decay rate in km/day, positive when the object is decaying
+     */
+    private static double decayRate(List<GpHistory> history) {
+        GpHistory last = history.get(history.size() - 1);
+        Instant lastEpoch = last.getEpoch().toInstant();
+        Instant weekBefore = lastEpoch.minus(Duration.ofDays(7));
+        GpHistory ref = last;
+        for (int i = history.size() - 2; i >= 0; i--) {
+            if (history.get(i).getEpoch().toInstant().isBefore(weekBefore)) {
+                break;
+            }
+            ref = history.get(i);
+        }
+        double days = Duration.between(ref.getEpoch().toInstant(), lastEpoch).toMillis() / MILLIS_PER_DAY;
+        return days > 0 ? (ref.getPeriapsis() - last.getPeriapsis()) / days : 0.0;
+    }
+
+    private static boolean hasDecayed(List<GpHistory> history) {
+        String decayDate = history.get(history.size() - 1).getDecayDate();
+        return decayDate != null && !decayDate.isBlank();
+    }
+}
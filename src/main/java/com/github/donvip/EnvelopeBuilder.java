@@ -0,0 +1,250 @@
+package com.github.donvip;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+import org.jfree.data.time.Millisecond;
+import org.jfree.data.time.TimeSeries;
+import org.jfree.data.time.TimeSeriesCollection;
+import org.jfree.data.xy.XYSeries;
+import org.jfree.data.xy.XYSeriesCollection;
+import org.jfree.data.xy.YIntervalSeries;
+import org.jfree.data.xy.YIntervalSeriesCollection;
+
+import com.github.donvip.GpHistoryQuery.GpHistory;
+
+/**
+ * Builds the altitude envelope of a cloud of objects: for each time bucket, the
+ * minimum, percentiles, median and maximum of apoapsis and periapsis across all
+ * objects in orbit, and the number of these objects.
+ * <p>
+ * Each history is reduced to one value per bucket as soon as it is added (mean
+ * of its records having a value, carried forward over buckets without value
+ * until the last one), so that the size of the envelope only depends on the number of
+ * buckets.
+ */
+class EnvelopeBuilder {
+
+    private static final double[] QUANTILES = { 0.0, 0.1, 0.25, 0.5, 0.75, 0.9, 1.0 };
+    /** Bands from the outermost to the innermost one, as indexes of quantiles */
+    private static final int[][] BANDS = { { 0, 6 }, { 1, 5 }, { 2, 4 } };
+    private static final String[] BAND_NAMES = { "min-max", "10-90%", "25-75%" };
+    private static final int MEDIAN = 3;
+
+    private final long bucketMillis;
+    private final boolean showApoapsis;
+    private final boolean showPeriapsis;
+    private final List<ObjectBuckets> objects = new ArrayList<>();
+
+    /**
+     * Values of a single object, one per bucket from its first to its last one.
+     */
+    private static final class ObjectBuckets {
+        private final long first;
+        private final float[] apoapsis;
+        private final float[] periapsis;
+
+        private ObjectBuckets(long first, float[] apoapsis, float[] periapsis) {
+            this.first = first;
+            this.apoapsis = apoapsis;
+            this.periapsis = periapsis;
+        }
+
+        private long last() {
+            return first + apoapsis.length - 1;
+        }
+    }
+
+    /**
+     * Statistics of a bucket: number of objects, and quantiles of their apoapsis
+     * and periapsis.
+     */
+    private static final class BucketStats {
+        private final int count;
+        private final double[] apoapsis;
+        private final double[] periapsis;
+
+        private BucketStats(int count, double[] apoapsis, double[] periapsis) {
+            this.count = count;
+            this.apoapsis = apoapsis;
+            this.periapsis = periapsis;
+        }
+    }
+
+    /**
+     * Datasets of an envelope.
+     */
+    static final class Envelope {
+        /** Shaded bands, grouped by apoapsis then periapsis, outermost first */
+        final YIntervalSeriesCollection bands = new YIntervalSeriesCollection();
+        /** Number of objects in orbit */
+        final XYSeriesCollection count = new XYSeriesCollection();
+        /** Minimum, median and maximum lines, for outputs not supporting bands */
+        final TimeSeriesCollection lines = new TimeSeriesCollection();
+    }
+
+    /**
+     * @param bucketMillis duration of time buckets, in milliseconds
+     * @param showApoapsis whether to compute apoapsis envelope
+     * @param showPeriapsis whether to compute periapsis envelope
+     */
+    EnvelopeBuilder(long bucketMillis, boolean showApoapsis, boolean showPeriapsis) {
+        this.bucketMillis = bucketMillis;
+        this.showApoapsis = showApoapsis;
+        this.showPeriapsis = showPeriapsis;
+    }
+
+    /**
+     * Reduces the history of an object to its bucket values.
+     *
+     * @param history GP_HISTORY records of the object
+     */
+    void add(List<GpHistory> history) {
+        if (history.isEmpty()) {
+            return;
+        }
+        long[] buckets = history.stream().mapToLong(gp -> bucket(gp.getEpoch().toInstant().toEpochMilli()))
+                .toArray();
+        long first = Arrays.stream(buckets).min().getAsLong();
+        int length = (int) (Arrays.stream(buckets).max().getAsLong() - first + 1);
+        double[] apoapsis = new double[length];
+        double[] periapsis = new double[length];
+        int[] apoapsisSamples = new int[length];
+        int[] periapsisSamples = new int[length];
+        for (int i = 0; i < buckets.length; i++) {
+            int b = (int) (buckets[i] - first);
+            GpHistory gp = history.get(i);
+            if (gp.getApoapsis() != null) {
+                apoapsis[b] += gp.getApoapsis();
+                apoapsisSamples[b]++;
+            }
+            if (gp.getPeriapsis() != null) {
+                periapsis[b] += gp.getPeriapsis();
+                periapsisSamples[b]++;
+            }
+        }
+        objects.add(new ObjectBuckets(first, means(apoapsis, apoapsisSamples), means(periapsis, periapsisSamples)));
+    }
+
+    /**
+     * @return mean value per bucket, carried forward over buckets without sample,
+     *         or {@code NaN} before the first sample
+     */
+    static float[] means(double[] sums, int[] samples) {
+        float[] means = new float[sums.length];
+        for (int b = 0; b < sums.length; b++) {
+            means[b] = samples[b] > 0 ? (float) (sums[b] / samples[b]) : b > 0 ? means[b - 1] : Float.NaN;
+        }
+        return means;
+    }
+
+    private long bucket(long epochMillis) {
+        return Math.floorDiv(epochMillis, bucketMillis);
+    }
+
+    /**
+     * Computes the statistics of all buckets in parallel and returns the envelope
+     * datasets.
+     *
+     * @return the envelope
+     */
+    Envelope build() {
+        Envelope envelope = new Envelope();
+        if (objects.isEmpty()) {
+            return envelope;
+        }
+        long first = objects.stream().mapToLong(o -> o.first).min().getAsLong();
+        long last = objects.stream().mapToLong(ObjectBuckets::last).max().getAsLong();
+        BucketStats[] stats = IntStream.rangeClosed(0, (int) (last - first)).parallel()
+                .mapToObj(b -> stats(first + b)).toArray(BucketStats[]::new);
+
+        if (showApoapsis) {
+            addBands(envelope, "Apoapsis", stats, first, s -> s.apoapsis);
+        }
+        if (showPeriapsis) {
+            addBands(envelope, "Periapsis", stats, first, s -> s.periapsis);
+        }
+        XYSeries count = new XYSeries("Objects in orbit", true, false);
+        for (int b = 0; b < stats.length; b++) {
+            count.add(center(first + b), stats[b].count, false);
+        }
+        envelope.count.addSeries(count);
+        return envelope;
+    }
+
+    private BucketStats stats(long bucket) {
+        int count = 0;
+        int apoapsisCount = 0;
+        int periapsisCount = 0;
+        float[] apoapsis = new float[objects.size()];
+        float[] periapsis = new float[objects.size()];
+        for (ObjectBuckets o : objects) {
+            if (o.first <= bucket && bucket <= o.last()) {
+                float apo = o.apoapsis[(int) (bucket - o.first)];
+                float peri = o.periapsis[(int) (bucket - o.first)];
+                if (!Float.isNaN(apo)) {
+                    apoapsis[apoapsisCount++] = apo;
+                }
+                if (!Float.isNaN(peri)) {
+                    periapsis[periapsisCount++] = peri;
+                }
+                count++;
+            }
+        }
+        return new BucketStats(count, quantiles(apoapsis, apoapsisCount), quantiles(periapsis, periapsisCount));
+    }
+
+    /**
+     * @return {@link #QUANTILES} of the first {@code count} values, or
+     *         {@code null} if there is no value
+     */
+    static double[] quantiles(float[] values, int count) {
+        if (count == 0) {
+            return null;
+        }
+        Arrays.sort(values, 0, count);
+        return Arrays.stream(QUANTILES).map(q -> {
+            double pos = q * (count - 1);
+            int i = (int) pos;
+            return i + 1 < count ? values[i] + (pos - i) * (values[i + 1] - values[i]) : values[i];
+        }).toArray();
+    }
+
+    private void addBands(Envelope envelope, String name, BucketStats[] stats, long first,
+            Function<BucketStats, double[]> quantiles) {
+        TimeSeries min = new TimeSeries(name + " min", "Time", name);
+        TimeSeries median = new TimeSeries(name + " median", "Time", name);
+        TimeSeries max = new TimeSeries(name + " max", "Time", name);
+        YIntervalSeries[] bands = new YIntervalSeries[BANDS.length];
+        for (int i = 0; i < BANDS.length; i++) {
+            bands[i] = new YIntervalSeries(name + ' ' + BAND_NAMES[i], false, false);
+        }
+        for (int b = 0; b < stats.length; b++) {
+            double[] q = quantiles.apply(stats[b]);
+            if (q != null) {
+                double x = center(first + b);
+                for (int i = 0; i < BANDS.length; i++) {
+                    bands[i].add(x, q[MEDIAN], q[BANDS[i][0]], q[BANDS[i][1]]);
+                }
+                Millisecond period = new Millisecond(new Date((long) x));
+                min.add(period, q[0], false);
+                median.add(period, q[MEDIAN], false);
+                max.add(period, q[QUANTILES.length - 1], false);
+            }
+        }
+        for (YIntervalSeries band : bands) {
+            envelope.bands.addSeries(band);
+        }
+        envelope.lines.addSeries(min);
+        envelope.lines.addSeries(median);
+        envelope.lines.addSeries(max);
+    }
+
+    private double center(long bucket) {
+        return bucket * bucketMillis + bucketMillis / 2.0;
+    }
+}
@@ -0,0 +1,436 @@
+package com.github.donvip;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.donvip.GpHistoryQuery.GpHistory;
+
+/**
+ * Reads GP_HISTORY records from bulk files exported from Space-Track, in JSON,
+ * CSV or OMM XML format.
+ * <p>
+ * Files are memory-mapped and scanned once, in a single streaming pass over
+ * their bytes, to index the byte range of each record per object id. Only the
+ * records of requested objects are then parsed, so that multi-GB archives can
+ * be read at disk speed.
+ */
+@Service
+public class FileHistorySource implements HistorySource {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileHistorySource.class);
+
+    /** Files larger than 2^REGION_SHIFT bytes are mapped as several regions */
+    private static final int REGION_SHIFT = 30;
+
+    private static final byte[] JSON_CATALOG_NUMBER = "\"NORAD_CAT_ID\"".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] XML_START = "<omm".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] XML_END = "</omm>".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] XML_CATALOG_NUMBER = "<NORAD_CAT_ID>".getBytes(StandardCharsets.US_ASCII);
+    private static final Pattern XML_ELEMENT = Pattern.compile("<([A-Z][A-Z0-9_]*)>([^<]*)</\\1>");
+    private static final Pattern XML_USER_DEFINED = Pattern
+            .compile("<USER_DEFINED\\s+parameter=\"([A-Z][A-Z0-9_]*)\"\\s*>([^<]*)</USER_DEFINED>");
+
+    @Value("${historyFiles:#{T(java.util.Collections).emptyList()}}")
+    private List<String> historyFiles;
+
+    private final ObjectMapper mapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    /** Only lowered by tests, to get records spanning several regions */
+    int regionShift = REGION_SHIFT;
+
+    private List<IndexedFile> index;
+
+    private enum Format {
+        JSON, CSV, XML;
+    }
+
+    /**
+     * Read-only mapping of a whole file, possibly larger than 2 GB.
+     */
+    private static final class MappedFile {
+        private final long size;
+        private final int shift;
+        private final long mask;
+        private final MappedByteBuffer[] regions;
+
+        private MappedFile(Path path, int shift) throws IOException {
+            this.shift = shift;
+            this.mask = (1L << shift) - 1;
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                size = channel.size();
+                regions = new MappedByteBuffer[(int) ((size + mask) >>> shift)];
+                for (int i = 0; i < regions.length; i++) {
+                    long position = (long) i << shift;
+                    regions[i] = channel.map(MapMode.READ_ONLY, position, Math.min(mask + 1, size - position));
+                }
+            }
+        }
+
+        private byte get(long pos) {
+            return regions[(int) (pos >>> shift)].get((int) (pos & mask));
+        }
+
+        private byte[] bytes(long start, long end) {
+            byte[] result = new byte[(int) (end - start)];
+            int done = 0;
+            while (done < result.length) {
+                long pos = start + done;
+                ByteBuffer region = regions[(int) (pos >>> shift)].duplicate();
+                region.position((int) (pos & mask));
+                int n = Math.min(result.length - done, region.remaining());
+                region.get(result, done, n);
+                done += n;
+            }
+            return result;
+        }
+
+        private long indexOf(byte[] pattern, long from, long to) {
+            for (long pos = from; pos <= to - pattern.length; pos++) {
+                if (get(pos) == pattern[0]) {
+                    int i = 1;
+                    while (i < pattern.length && get(pos + i) == pattern[i]) {
+                        i++;
+                    }
+                    if (i == pattern.length) {
+                        return pos;
+                    }
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Parses the first unsigned integer found in the given range.
+         *
+         * @return the parsed integer, or {@code null} if the range does not start
+         *         with an integer, after optional quotes and whitespaces
+         */
+        private Integer parseInt(long from, long to) {
+            long pos = from;
+            while (pos < to && (get(pos) == '"' || Character.isWhitespace(get(pos)))) {
+                pos++;
+            }
+            int value = 0;
+            long start = pos;
+            for (byte b; pos < to && (b = get(pos)) >= '0' && b <= '9'; pos++) {
+                value = value * 10 + (b - '0');
+            }
+            return pos > start ? value : null;
+        }
+    }
+
+    /**
+     * Growable list of record byte ranges, stored as (start, end) pairs.
+     */
+    private static final class Ranges {
+        private long[] data = new long[8];
+        private int size;
+
+        private void add(long start, long end) {
+            if (size + 2 > data.length) {
+                data = Arrays.copyOf(data, data.length * 2);
+            }
+            data[size++] = start;
+            data[size++] = end;
+        }
+    }
+
+    private static final class IndexedFile {
+        private final Path path;
+        private final Format format;
+        private final MappedFile mapped;
+        private final Map<Integer, Ranges> records = new HashMap<>();
+        private String[] csvHeader;
+        private int count;
+
+        private IndexedFile(Path path, Format format, int regionShift) throws IOException {
+            this.path = path;
+            this.format = format;
+            this.mapped = new MappedFile(path, regionShift);
+        }
+
+        private void add(Integer id, long start, long end) {
+            if (id != null) {
+                records.computeIfAbsent(id, k -> new Ranges()).add(start, end);
+                count++;
+            }
+        }
+    }
+
+    @Override
+    public List<GpHistory> fetchHistory(Integer id, Instant startDate, Instant endDate, double minAltitude)
+            throws IOException {
+        // Files may overlap: keep a single record per GP id
+        Set<GpHistory> result = new TreeSet<>(HistoryStore.EPOCH_ORDER);
+        int incomplete = 0;
+        for (IndexedFile file : index()) {
+            Ranges ranges = file.records.get(id);
+            if (ranges != null) {
+                for (int i = 0; i < ranges.size; i += 2) {
+                    GpHistory gp = parse(file, ranges.data[i], ranges.data[i + 1]);
+                    if (gp.getEpoch() == null || gp.getGpId() == null || gp.getApoapsis() == null
+                            || gp.getPeriapsis() == null) {
+                        incomplete++;
+                    } else if (HistoryStore.matches(gp, startDate, endDate, minAltitude)) {
+                        result.add(gp);
+                    }
+                }
+            }
+        }
+        if (incomplete > 0) {
+            logger.warn("Ignoring {} incomplete gp_history records of satellite {}", incomplete, id);
+        }
+        return new ArrayList<>(result);
+    }
+
+    private synchronized List<IndexedFile> index() throws IOException {
+        if (index == null) {
+            List<IndexedFile> files = new ArrayList<>();
+            for (Path path : expand(historyFiles)) {
+                Format format = format(path);
+                if (format == null) {
+                    logger.warn("Ignoring history file of unknown format: {}", path);
+                    continue;
+                }
+                long start = System.currentTimeMillis();
+                IndexedFile file = new IndexedFile(path, format, regionShift);
+                switch (format) {
+                case JSON:
+                    indexJson(file);
+                    break;
+                case CSV:
+                    indexCsv(file);
+                    break;
+                case XML:
+                    indexXml(file);
+                    break;
+                default:
+                    throw new UnsupportedOperationException(format.toString());
+                }
+                logger.info("Indexed {} gp_history records of {} objects in {} ({} ms)", file.count,
+                        file.records.size(), path, System.currentTimeMillis() - start);
+                files.add(file);
+            }
+            index = files;
+        }
+        return index;
+    }
+
+    private static List<Path> expand(List<String> paths) throws IOException {
+        List<Path> result = new ArrayList<>();
+        for (Path path : paths.stream().map(String::trim).filter(p -> !p.isEmpty()).map(Path::of)
+                .collect(Collectors.toList())) {
+            if (Files.isDirectory(path)) {
+                try (Stream<Path> files = Files.list(path)) {
+                    result.addAll(files.filter(f -> format(f) != null).sorted().collect(Collectors.toList()));
+                }
+            } else {
+                result.add(path);
+            }
+        }
+        return result;
+    }
+
+    private static Format format(Path path) {
+        String name = path.getFileName().toString().toLowerCase(Locale.ENGLISH);
+        return name.endsWith(".json") || name.endsWith(".jsonl") ? Format.JSON
+                : name.endsWith(".csv") ? Format.CSV : name.endsWith(".xml") ? Format.XML : null;
+    }
+
+    /**
+     * Indexes JSON objects, either as elements of a top-level array or as JSON
+     * lines.
+     */
+    private static void indexJson(IndexedFile file) {
+        MappedFile m = file.mapped;
+        int depth = 0;
+        boolean inString = false;
+        boolean escaped = false;
+        long start = 0;
+        for (long pos = 0; pos < m.size; pos++) {
+            byte b = m.get(pos);
+            if (inString) {
+                if (escaped) {
+                    escaped = false;
+                } else if (b == '\\') {
+                    escaped = true;
+                } else if (b == '"') {
+                    inString = false;
+                }
+            } else if (b == '"') {
+                inString = true;
+            } else if (b == '{') {
+                if (depth++ == 0) {
+                    start = pos;
+                }
+            } else if (b == '}' && depth > 0 && --depth == 0) {
+                long key = m.indexOf(JSON_CATALOG_NUMBER, start, pos);
+                if (key >= 0) {
+                    long value = key + JSON_CATALOG_NUMBER.length;
+                    while (value < pos && (m.get(value) == ':' || Character.isWhitespace(m.get(value)))) {
+                        value++;
+                    }
+                    file.add(m.parseInt(value, pos), start, pos + 1);
+                }
+            }
+        }
+    }
+
+    /**
+     * Indexes CSV lines, after a header line naming the columns.
+     */
+    private static void indexCsv(IndexedFile file) {
+        MappedFile m = file.mapped;
+        long headerEnd = 0;
+        boolean quoted = false;
+        while (headerEnd < m.size && (quoted || m.get(headerEnd) != '\n')) {
+            if (m.get(headerEnd++) == '"') {
+                quoted = !quoted;
+            }
+        }
+        file.csvHeader = splitCsv(new String(m.bytes(0, headerEnd), StandardCharsets.UTF_8)).toArray(new String[0]);
+        int column = Arrays.asList(file.csvHeader).indexOf("NORAD_CAT_ID");
+        if (column < 0) {
+            logger.warn("No NORAD_CAT_ID column in {}", file.path);
+            return;
+        }
+        long lineStart = headerEnd + 1;
+        long fieldStart = lineStart;
+        int field = 0;
+        Integer id = null;
+        quoted = false;
+        for (long pos = lineStart; pos <= m.size; pos++) {
+            byte b = pos < m.size ? m.get(pos) : (byte) '\n';
+            if (b == '"') {
+                quoted = !quoted;
+            } else if (!quoted && (b == ',' || b == '\n')) {
+                if (field++ == column) {
+                    id = m.parseInt(fieldStart, pos);
+                }
+                fieldStart = pos + 1;
+                if (b == '\n') {
+                    if (pos > lineStart) {
+                        file.add(id, lineStart, pos);
+                    }
+                    lineStart = pos + 1;
+                    fieldStart = lineStart;
+                    field = 0;
+                    id = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Indexes {@code <omm>} elements of an OMM XML document.
+     */
+    private static void indexXml(IndexedFile file) {
+        MappedFile m = file.mapped;
+        long pos = 0;
+        while ((pos = m.indexOf(XML_START, pos, m.size)) >= 0) {
+            long next = pos + XML_START.length;
+            if (next < m.size && (m.get(next) == '>' || Character.isWhitespace(m.get(next)))) {
+                long end = m.indexOf(XML_END, next, m.size);
+                if (end < 0) {
+                    logger.warn("Truncated OMM element at offset {} of {}", pos, file.path);
+                    break;
+                }
+                long key = m.indexOf(XML_CATALOG_NUMBER, next, end);
+                if (key >= 0) {
+                    file.add(m.parseInt(key + XML_CATALOG_NUMBER.length, end), pos, end + XML_END.length);
+                }
+                next = end + XML_END.length;
+            }
+            pos = next;
+        }
+    }
+
+    private GpHistory parse(IndexedFile file, long start, long end) throws IOException {
+        byte[] bytes = file.mapped.bytes(start, end);
+        switch (file.format) {
+        case JSON:
+            return mapper.readValue(bytes, GpHistory.class);
+        case CSV:
+            List<String> values = splitCsv(new String(bytes, StandardCharsets.UTF_8));
+            Map<String, String> fields = new LinkedHashMap<>();
+            for (int i = 0; i < Math.min(values.size(), file.csvHeader.length); i++) {
+                if (!values.get(i).isEmpty()) {
+                    fields.put(file.csvHeader[i], values.get(i));
+                }
+            }
+            return mapper.convertValue(fields, GpHistory.class);
+        case XML:
+            String xml = new String(bytes, StandardCharsets.UTF_8);
+            Map<String, String> elements = new LinkedHashMap<>();
+            for (Pattern pattern : List.of(XML_ELEMENT, XML_USER_DEFINED)) {
+                Matcher matcher = pattern.matcher(xml);
+                while (matcher.find()) {
+                    if (!matcher.group(2).isBlank()) {
+                        elements.put(matcher.group(1), unescapeXml(matcher.group(2).trim()));
+                    }
+                }
+            }
+            return mapper.convertValue(elements, GpHistory.class);
+        default:
+            throw new UnsupportedOperationException(file.format.toString());
+        }
+    }
+
+    private static List<String> splitCsv(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder sb = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                if (quoted && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    sb.append('"');
+                    i++;
+                } else {
+                    quoted = !quoted;
+                }
+            } else if (c == ',' && !quoted) {
+                values.add(sb.toString());
+                sb.setLength(0);
+            } else if (quoted || (c != '\r' && c != '\n')) {
+                sb.append(c);
+            }
+        }
+        values.add(sb.toString());
+        return values;
+    }
+
+    private static String unescapeXml(String value) {
+        return value.replace("&lt;", "<").replace("&gt;", ">").replace("&quot;", "\"").replace("&apos;", "'")
+                .replace("&amp;", "&");
+    }
+}
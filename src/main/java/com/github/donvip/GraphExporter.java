@@ -0,0 +1,180 @@
+package com.github.donvip;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+
+import org.jfree.chart.JFreeChart;
+import org.jfree.data.time.TimeSeries;
+import org.jfree.data.time.TimeSeriesCollection;
+import org.jfree.data.time.TimeSeriesDataItem;
+import org.jfree.svg.SVGGraphics2D;
+
+import com.orsonpdf.PDFDocument;
+import com.orsonpdf.PDFGraphics2D;
+import com.orsonpdf.Page;
+
+/**
+ * Writes a graph to static image formats and to a flat data dump, from a
+ * single drawing and dataset.
+ * <p>
+ * Formats can be written concurrently from the same drawing: calls to
+ * {@link JFreeChart#draw} are serialized per chart, since it updates the
+ * chart state, while encoding and writing of each format run in parallel.
+ */
+final class GraphExporter {
+
+    private GraphExporter() {
+        // Hide default constructor for utilities classes
+    }
+
+    /**
+     * A graph laid out once, which can be drawn to any {@link Graphics2D}.
+     */
+    interface Drawing {
+        int getWidth();
+
+        int getHeight();
+
+        void draw(Graphics2D g2);
+
+        default String toSVG() {
+            SVGGraphics2D g2 = new SVGGraphics2D(getWidth(), getHeight());
+            draw(g2);
+            return g2.getSVGElement();
+        }
+    }
+
+    /**
+     * @return a drawing of a single chart
+     */
+    static Drawing chart(JFreeChart chart, int width, int height) {
+        return new Drawing() {
+            @Override
+            public int getWidth() {
+                return width;
+            }
+
+            @Override
+            public int getHeight() {
+                return height;
+            }
+
+            @Override
+            public void draw(Graphics2D g2) {
+                synchronized (chart) {
+                    chart.draw(g2, new Rectangle(width, height));
+                }
+            }
+
+            @Override
+            public String toSVG() {
+                SVGGraphics2D g2 = new SVGGraphics2D(width, height);
+                draw(g2);
+                return g2.getSVGElement(chart.getID());
+            }
+        };
+    }
+
+    /**
+     * @return a drawing of a grid of charts, see {@link GridRenderer}
+     */
+    static Drawing grid(List<JFreeChart> panels, int columns, int panelWidth, int panelHeight) {
+        return new Drawing() {
+            @Override
+            public int getWidth() {
+                return columns * panelWidth;
+            }
+
+            @Override
+            public int getHeight() {
+                return (panels.size() + columns - 1) / columns * panelHeight;
+            }
+
+            @Override
+            public void draw(Graphics2D g2) {
+                GridRenderer.draw(g2, panels, columns, panelWidth, panelHeight);
+            }
+
+            @Override
+            public String toSVG() {
+                return GridRenderer.generateSVG(panels, columns, panelWidth, panelHeight);
+            }
+        };
+    }
+
+    static void writePNG(Path file, Drawing drawing) throws IOException {
+        BufferedImage image = new BufferedImage(drawing.getWidth(), drawing.getHeight(), BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2 = image.createGraphics();
+        try {
+            g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            drawing.draw(g2);
+        } finally {
+            g2.dispose();
+        }
+        try (OutputStream out = Files.newOutputStream(file)) {
+            ImageIO.write(image, "png", out);
+        }
+    }
+
+    static void writePDF(Path file, String title, Drawing drawing) throws IOException {
+        PDFDocument document = new PDFDocument();
+        document.setTitle(title);
+        Page page = document.createPage(new Rectangle(drawing.getWidth(), drawing.getHeight()));
+        PDFGraphics2D g2 = page.getGraphics2D();
+        drawing.draw(g2);
+        Files.write(file, document.getPDFBytes());
+    }
+
+    /**
+     * Writes all plotted points as CSV, one line per point.
+     */
+    static void writeCSV(Path file, List<TimeSeriesCollection> datasets) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(file)) {
+            out.write("series,quantity,object_id,gp_id,epoch,kilometers");
+            out.newLine();
+            for (TimeSeriesCollection dataset : datasets) {
+                for (int i = 0; i < dataset.getSeriesCount(); i++) {
+                    TimeSeries series = dataset.getSeries(i);
+                    String prefix = csv(series.getKey().toString()) + ',' + csv(series.getRangeDescription()) + ','
+                            + (series instanceof IdentifiedTimeSeries
+                                    ? ((IdentifiedTimeSeries) series).getObjectId().toString()
+                                    : "")
+                            + ',';
+                    for (int j = 0; j < series.getItemCount(); j++) {
+                        TimeSeriesDataItem item = series.getDataItem(j);
+                        if (item.getValue() != null) {
+                            out.write(prefix);
+                            if (item instanceof LabeledTimeSeriesDataItem) {
+                                out.write(((LabeledTimeSeriesDataItem) item).getLabel());
+                            }
+                            out.write(',');
+                            out.write(Instant.ofEpochMilli(item.getPeriod().getFirstMillisecond()).toString());
+                            out.write(',');
+                            out.write(item.getValue().toString());
+                            out.newLine();
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        String s = value.trim();
+        return s.indexOf(',') >= 0 || s.indexOf('"') >= 0 ? '"' + s.replace("\"", "\"\"") + '"' : s;
+    }
+}
@@ -0,0 +1,101 @@
+package com.github.donvip;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Properties;
+
+import com.github.donvip.GpHistoryQuery.GpHistory;
+
+/**
+ * Manifest of generated graphs, stored next to the outputs. Records, for each
+ * output file, a hash of the input data and rendering parameters used to
+ * generate it, so that unchanged graphs can be skipped on next run.
+ * <p>
+ * The input data is part of the hash, so histories are still fetched to check
+ * whether a graph is up to date: only rendering and writing are skipped.
+ */
+class GraphManifest {
+
+    private final Path path;
+    private final Properties hashes = new Properties();
+
+    GraphManifest(Path path) throws IOException {
+        this.path = path;
+        if (Files.exists(path)) {
+            try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                hashes.load(reader);
+            }
+        }
+    }
+
+    /**
+     * Determines if the given output file exists and has been generated from the
+     * same input data and rendering parameters.
+     *
+     * @param filename output file name
+     * @param hash hash of input data and rendering parameters
+     * @return {@code true} if the graph does not need to be generated again
+     */
+    boolean isUpToDate(String filename, String hash) {
+        return hash.equals(hashes.getProperty(filename)) && Files.exists(Path.of(filename));
+    }
+
+    /**
+     * Records the hash of a newly generated output file and saves the manifest.
+     *
+     * @param filename output file name
+     * @param hash hash of input data and rendering parameters
+     * @throws IOException if the manifest cannot be written
+     */
+    void update(String filename, String hash) throws IOException {
+        hashes.setProperty(filename, hash);
+        try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            hashes.store(writer, "sat-decay-graph manifest");
+        }
+    }
+
+    /**
+     * Incremental SHA-256 hash of graph input data and rendering parameters.
+     */
+    static class Hasher {
+
+        private final MessageDigest digest;
+
+        Hasher() {
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        Hasher update(Object value) {
+            digest.update(String.valueOf(value).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            return this;
+        }
+
+        Hasher update(Integer id, String name, List<GpHistory> history) {
+            update(id).update(name).update(history.size());
+            for (GpHistory gp : history) {
+                update(gp.getGpId()).update(gp.getEpoch()).update(gp.getApoapsis()).update(gp.getPeriapsis());
+            }
+            return this;
+        }
+
+        String digest() {
+            StringBuilder sb = new StringBuilder();
+            for (byte b : digest.digest()) {
+                sb.append(String.format("%02x", b));
+            }
+            return sb.toString();
+        }
+    }
+}
@@ -7,15 +7,16 @@ import java.awt.BasicStroke;
 import java.awt.Color;
 import java.awt.Desktop;
 import java.awt.HeadlessException;
-import java.awt.Rectangle;
+import java.awt.Paint;
 import java.awt.geom.Ellipse2D;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.text.SimpleDateFormat;
 import java.time.Instant;
 import java.util.ArrayList;
-import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -25,6 +26,9 @@ import java.util.Set;
 import java.util.TimeZone;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Stream;
 
 import org.jfree.chart.JFreeChart;
@@ -32,24 +36,23 @@ import org.jfree.chart.LegendItemCollection;
 import org.jfree.chart.axis.AxisLocation;
 import org.jfree.chart.axis.DateAxis;
 import org.jfree.chart.axis.NumberAxis;
+import org.jfree.chart.plot.DefaultDrawingSupplier;
 import org.jfree.chart.plot.XYPlot;
 import org.jfree.chart.renderer.xy.AbstractXYItemRenderer;
+import org.jfree.chart.renderer.xy.DeviationRenderer;
 import org.jfree.chart.renderer.xy.SamplingXYLineRenderer;
+import org.jfree.chart.renderer.xy.XYDotRenderer;
 import org.jfree.chart.renderer.xy.XYLineAndShapeRenderer;
-import org.jfree.data.time.Millisecond;
-import org.jfree.data.time.RegularTimePeriod;
+import org.jfree.chart.renderer.xy.XYStepRenderer;
 import org.jfree.data.time.TimeSeries;
 import org.jfree.data.time.TimeSeriesCollection;
 import org.jfree.data.time.TimeSeriesDataItem;
-import org.jfree.svg.SVGGraphics2D;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import com.fasterxml.jackson.core.JsonParseException;
-import com.fasterxml.jackson.databind.JsonMappingException;
 import com.github.donvip.GpHistoryQuery.GpHistory;
 
 @Service
@@ -126,84 +129,89 @@ public class GraphService {
     @Value("${customRendererClass:#{null}}")
     private Class<? extends AbstractXYItemRenderer> customRendererClass;
 
+    @Value("${skipUnchangedGraphs:true}")
+    private boolean skipUnchangedGraphs;
+
+    @Value("${manifestFile:graphs.manifest}")
+    private String manifestFile;
+
+    @Value("${outputFormats:svg}")
+    private List<OutputFormat> outputFormats;
+
+    @Value("${lodBucketsPerTile:1000}")
+    private int lodBucketsPerTile;
+
+    @Value("${autoReassign:false}")
+    private boolean autoReassign;
+
+    @Value("${autoReassignTolerance:20.0}")
+    private double autoReassignTolerance;
+
+    @Value("${autoReassignKmPerDay:10.0}")
+    private double autoReassignKmPerDay;
+
+    @Value("${compactSvg:true}")
+    private boolean compactSvg;
+
+    @Value("${svgPrecision:1}")
+    private int svgPrecision;
+
+    @Value("${aggregateBucketHours:24}")
+    private int aggregateBucketHours;
+
+    @Value("${gridColumns:0}")
+    private int gridColumns;
+
+    @Value("${gridPanelWidth:480}")
+    private int gridPanelWidth;
+
+    @Value("${gridPanelHeight:270}")
+    private int gridPanelHeight;
+
+    @Value("${gridSharedAxes:true}")
+    private boolean gridSharedAxes;
+
     @Autowired
     private CelestrakService celestrak;
 
     @Autowired
     private SpaceTrackService spaceTrack;
 
-    private static String generateSVGForChart(JFreeChart chart, int width, int height) {
-        SVGGraphics2D g2 = new SVGGraphics2D(width, height);
-        chart.draw(g2, new Rectangle(width, height));
-        return g2.getSVGElement(chart.getID());
-    }
-
-    private void addTimeSeries(TimeSeriesCollection apoApsisCollection, TimeSeriesCollection periApsisCollection,
-            List<GpHistory> history, String prefix, Integer objectId, boolean distinguish,
-            List<GpHistory> overridenHistories) {
-        final TimeSeries apoapsis = new IdentifiedTimeSeries(objectId, prefix + (distinguish ? "Apoapsis" : ""));
-        final TimeSeries periapsis = new IdentifiedTimeSeries(objectId, prefix + (distinguish ? "Periapsis" : ""));
-
-        for (GpHistory gp : history) {
-            Integer overridenObjectId = overrides.get(gp.getGpId());
-            if (overridenObjectId == null || overridenObjectId.equals(objectId)) {
-                addApoapsisAndPeriapsis(apoapsis, periapsis, gp);
-            } else {
-                overridenHistories.add(gp);
-            }
-        }
+    @Autowired
+    private BulkHistoryService bulkHistory;
 
-        apoApsisCollection.addSeries(apoapsis);
-        periApsisCollection.addSeries(periapsis);
-    }
+    @Autowired
+    private HistorySource historySource;
 
-    private void addApoapsisAndPeriapsis(final TimeSeries apoapsis, final TimeSeries periapsis, GpHistory gp) {
-        String label = gp.getGpId().toString();
-        RegularTimePeriod date = new Millisecond(Date.from(gp.getEpoch().toInstant()));
-        if (showApoapsis) {
-            apoapsis.addOrUpdate(new LabeledTimeSeriesDataItem(date, gp.getApoapsis(), label));
-        }
-        if (showPeriapsis) {
-            periapsis.addOrUpdate(new LabeledTimeSeriesDataItem(date, gp.getPeriapsis(), label));
-        }
+    private String generateSVG(GraphExporter.Drawing drawing) {
+        String svg = drawing.toSVG();
+        return compactSvg ? SvgCompactor.compact(svg, svgPrecision) : svg;
     }
 
     /**
-     * Creates one or two datasets, based on the {@code distringuish} parameter
+     * Creates a dataset builder, based on the {@code distinguish} parameter
      *
-     * @param histories Map of GP_HISTORY records per object id, as returned by
-     *            Space-Track API
-     * @param names Map of object names per object id
      * @param distinguish if {@code true}, creates a single data set where apoapsis
      *            and periapsis series have distinguished names. If {@code false},
      *            creates two datasets where apoapsis and periapsis have the same
      *            name. The use of two datasets allow to render the plot with the
      *            same colors for both series.
-     * @return the created datasets
+     * @return the created dataset builder
      */
-    private List<TimeSeriesCollection> createDatasets(Map<Integer, List<GpHistory>> histories,
-            Map<Integer, String> names, boolean distinguish) {
-        TimeSeriesCollection apoapsis = new TimeSeriesCollection();
-        TimeSeriesCollection periapsis = new TimeSeriesCollection();
-        List<GpHistory> overridenHistories = new ArrayList<>();
-        histories.forEach((id, history) -> {
-            String name = useNameInLegend ? names.get(id) : id.toString();
-            addTimeSeries(apoapsis, distinguish ? apoapsis : periapsis, history, name.isEmpty() ? name : name + ' ', id,
-                    distinguish, overridenHistories);
-        });
-        overridenHistories.forEach(gp -> {
-            Integer id = overrides.get(gp.getGpId());
-            List<IdentifiedTimeSeries> apoapsises = findSeries(apoapsis, id);
-            addApoapsisAndPeriapsis(apoapsises.get(0),
-                    distinguish ? apoapsises.get(1) : findSeries(periapsis, id).get(0), gp);
-        });
-        return distinguish ? List.of(apoapsis) : List.of(apoapsis, periapsis);
+    private DatasetBuilder newDatasetBuilder(boolean distinguish) {
+        // Records can only be reassigned between several objects, i.e. in combined graphs
+        return new DatasetBuilder(distinguish, showApoapsis, showPeriapsis, overrides,
+                autoReassign && !distinguish
+                        ? new TrackConsistencyChecker(autoReassignTolerance, autoReassignKmPerDay)
+                        : null);
+    }
+
+    private EnvelopeBuilder newEnvelopeBuilder() {
+        return new EnvelopeBuilder(TimeUnit.HOURS.toMillis(aggregateBucketHours), showApoapsis, showPeriapsis);
     }
 
-    @SuppressWarnings("unchecked")
-    private static List<IdentifiedTimeSeries> findSeries(TimeSeriesCollection collection, Integer objectId) {
-        return (List<IdentifiedTimeSeries>) collection.getSeries().stream()
-                .filter(s -> ((IdentifiedTimeSeries) s).getObjectId().equals(objectId)).collect(toList());
+    private String seriesName(Integer id, String objectName) {
+        return useNameInLegend ? objectName : id.toString();
     }
 
     private JFreeChart createChart(List<TimeSeriesCollection> datasets, String title)
@@ -220,12 +228,7 @@ public class GraphService {
     private XYPlot createPlot(List<TimeSeriesCollection> datasets)
             throws SecurityException, ReflectiveOperationException {
         // Time axis, UTC / English
-        DateAxis timeAxis = new DateAxis("Time (UTC)", TimeZone.getTimeZone("UTC"), Locale.ENGLISH);
-        timeAxis.setLowerMargin(0.02);
-        timeAxis.setUpperMargin(0.02);
-        if (dateFormat != null && !dateFormat.trim().isEmpty()) {
-            timeAxis.setDateFormatOverride(new SimpleDateFormat(dateFormat.trim(), Locale.ENGLISH));
-        }
+        DateAxis timeAxis = createTimeAxis();
 
         // Value axis (same on both sides for readability)
         NumberAxis leftAxis = new NumberAxis("Kilometers");
@@ -265,12 +268,67 @@ public class GraphService {
         return plot;
     }
 
+    private DateAxis createTimeAxis() {
+        DateAxis timeAxis = new DateAxis("Time (UTC)", TimeZone.getTimeZone("UTC"), Locale.ENGLISH);
+        timeAxis.setLowerMargin(0.02);
+        timeAxis.setUpperMargin(0.02);
+        if (dateFormat != null && !dateFormat.trim().isEmpty()) {
+            timeAxis.setDateFormatOverride(new SimpleDateFormat(dateFormat.trim(), Locale.ENGLISH));
+        }
+        return timeAxis;
+    }
+
+    private JFreeChart createAggregateChart(EnvelopeBuilder.Envelope envelope, String title) {
+        DateAxis timeAxis = createTimeAxis();
+        NumberAxis leftAxis = new NumberAxis("Kilometers");
+        leftAxis.setAutoRangeIncludesZero(false);
+        NumberAxis countAxis = new NumberAxis("Objects in orbit");
+        countAxis.setStandardTickUnits(NumberAxis.createIntegerTickUnits());
+
+        // Nested bands of each quantity share its color, inner bands being darker as fills overlap
+        DeviationRenderer bandRenderer = new DeviationRenderer(true, false);
+        bandRenderer.setAlpha(0.25f);
+        bandRenderer.setDefaultStroke(new BasicStroke(strokeWidth / 2));
+        bandRenderer.setAutoPopulateSeriesStroke(false);
+        int bandsPerQuantity = envelope.bands.getSeriesCount()
+                / Math.max(1, (showApoapsis ? 1 : 0) + (showPeriapsis ? 1 : 0));
+        for (int i = 0; i < envelope.bands.getSeriesCount(); i++) {
+            Paint paint = DefaultDrawingSupplier.DEFAULT_PAINT_SEQUENCE[i / bandsPerQuantity];
+            bandRenderer.setSeriesPaint(i, paint);
+            bandRenderer.setSeriesFillPaint(i, paint);
+            // Only draw the median line once, with the innermost band
+            bandRenderer.setSeriesLinesVisible(i, i % bandsPerQuantity == bandsPerQuantity - 1);
+        }
+        XYStepRenderer countRenderer = new XYStepRenderer();
+        countRenderer.setSeriesPaint(0, Color.DARK_GRAY);
+        countRenderer.setSeriesStroke(0, new BasicStroke(1.0f));
+
+        XYPlot plot = new XYPlot(envelope.bands, timeAxis, leftAxis, bandRenderer);
+        plot.setDataset(1, envelope.count);
+        plot.setRenderer(1, countRenderer);
+        plot.setRangeAxis(1, countAxis);
+        plot.setRangeAxisLocation(1, AxisLocation.TOP_OR_RIGHT);
+        plot.mapDatasetToRangeAxis(1, 1);
+        plot.setBackgroundPaint(Color.WHITE);
+        plot.setDomainGridlinesVisible(domainGridlinesVisible);
+        plot.setRangeGridlinesVisible(rangeGridlinesVisible);
+
+        JFreeChart chart = new JFreeChart(title, JFreeChart.DEFAULT_TITLE_FONT, plot, showLegend);
+        chart.setBackgroundPaint(Color.WHITE);
+        return chart;
+    }
+
     private AbstractXYItemRenderer createRenderer(boolean small, double delta)
             throws ReflectiveOperationException, SecurityException {
         AbstractXYItemRenderer renderer = customRendererClass != null
-                ? customRendererClass.getConstructor().newInstance()
+                ? (compactSvg && XYDotRenderer.class.equals(customRendererClass) ? new PathXYDotRenderer()
+                        : customRendererClass.getConstructor().newInstance())
                 : small ? new XYLineAndShapeRenderer(true, true)
                 : new SatSamplingXYLineRenderer();
+        if (compactSvg && renderer instanceof XYLineAndShapeRenderer) {
+            // Draw each series line as a single path instead of one line per segment
+            ((XYLineAndShapeRenderer) renderer).setDrawSeriesLineAsPath(true);
+        }
         renderer.setAutoPopulateSeriesPaint(autoPopulateSeriesPaint);
         renderer.setDefaultStroke(new BasicStroke(strokeWidth));
         renderer.setDefaultShape(new Ellipse2D.Double(-delta, -delta, shapeSize, shapeSize));
@@ -299,16 +357,54 @@ public class GraphService {
     }
 
     private enum PlotMode {
-        combined, distinct;
+        combined, distinct, aggregate, grid;
+    }
+
+    private enum OutputFormat {
+        svg(true), html(false), png(true), pdf(true), csv(false);
+
+        private final boolean isStatic;
+
+        OutputFormat(boolean isStatic) {
+            this.isStatic = isStatic;
+        }
+
+        /**
+         * @return {@code true} if the format is an image of the chart layout
+         */
+        boolean isStatic() {
+            return isStatic;
+        }
+    }
+
+    /**
+     * Creates a hasher initialized with all parameters affecting the rendering of
+     * a graph.
+     *
+     * @return a new hasher, ready to be updated with graph input data
+     */
+    private GraphManifest.Hasher newHasher() {
+        return new GraphManifest.Hasher().update(plotMode).update(domainGridlinesVisible)
+                .update(rangeGridlinesVisible).update(showApoapsis).update(showPeriapsis).update(showLegend)
+                .update(useNameInLegend).update(startDate).update(endDate).update(dateFormat).update(minAltitude)
+                .update(width).update(height).update(strokeWidth).update(shapeSize).update(autoPopulateSeriesPaint)
+                .update(debug).update(new TreeMap<>(overrides)).update(customRendererClass)
+                .update(lodBucketsPerTile).update(compactSvg).update(svgPrecision).update(autoReassign)
+                .update(autoReassignTolerance).update(autoReassignKmPerDay).update(aggregateBucketHours)
+                .update(gridColumns).update(gridPanelWidth).update(gridPanelHeight).update(gridSharedAxes);
     }
 
     private void doGenerateGraphs(List<Integer> ids, Map<String, String[]> map)
             throws IOException, InterruptedException, SecurityException, ReflectiveOperationException {
         Map<Integer, String> names = new TreeMap<>();
-        Map<Integer, List<GpHistory>> histories = new TreeMap<>();
-        for (Integer id : ids) {
+        GraphManifest manifest = new GraphManifest(Path.of(manifestFile));
+        GraphManifest.Hasher combinedHasher = newHasher();
+        DatasetBuilder combined = newDatasetBuilder(false);
+        EnvelopeBuilder envelope = newEnvelopeBuilder();
+        Map<Integer, List<TimeSeriesCollection>> panels = new TreeMap<>();
+        for (Integer id : new TreeSet<>(ids)) {
             logger.info("Fetching history for satellite {}", id);
-            List<GpHistory> history = spaceTrack.fetchHistory(id, startDate, endDate, minAltitude);
+            List<GpHistory> history = historySource.fetchHistory(id, startDate, endDate, minAltitude);
             if (history.isEmpty()) {
                 logger.error("Unable to generate graph for satellite {} (empty history)", id);
             } else {
@@ -317,35 +413,279 @@ public class GraphService {
                 names.put(id, objectName);
                 switch (plotMode) {
                 case combined:
-                    histories.put(id, history);
+                    // Fold history into combined datasets right away, raw records are not kept
+                    combined.add(id, seriesName(id, objectName), history);
+                    combinedHasher.update(id, objectName, history);
                     break;
                 case distinct:
-                    logger.info("Generating graph for satellite {} - {}", id, objectName);
-                    String filename = objectName.replace('/', '-').replace('\\', '-') + " altitude.svg";
-                    Files.writeString(Path.of(filename), generateSVGForChart(
-                            createChart(createDatasets(Map.of(id, history), Map.of(id, objectName), true),
-                                    objectName + " altitude"),
-                            width, height));
-                    logger.info("Graph generated for satellite {}: {}", id, filename);
-                    openGraph(filename);
+                    generateDistinctGraph(manifest, id, objectName, history, true);
+                    break;
+                case aggregate:
+                    envelope.add(history);
+                    combinedHasher.update(id, objectName, history);
+                    break;
+                case grid:
+                    panels.put(id, buildDistinctDatasets(id, objectName, history));
+                    combinedHasher.update(id, objectName, history);
                     break;
                 default:
                     throw new UnsupportedOperationException(Objects.toString(plotMode));
                 }
             }
         }
-        if (PlotMode.combined == plotMode && !histories.isEmpty()) {
-            Set<String> objectNames = new TreeSet<>(names.values().stream().collect(toSet()));
+        if (PlotMode.combined == plotMode && !names.isEmpty()) {
+            generateCombinedGraph(manifest, names, combined, combinedHasher.digest(), true);
+        } else if (PlotMode.aggregate == plotMode && !names.isEmpty()) {
+            generateAggregateGraph(manifest, names, envelope, combinedHasher.digest(), true);
+        } else if (PlotMode.grid == plotMode && !names.isEmpty()) {
+            generateGridGraph(manifest, names, panels, combinedHasher.digest(), true);
+        }
+    }
+
+    /**
+     * Generates again the graphs of objects being watched, skipping the ones whose
+     * data did not change. Files are not opened again.
+     *
+     * @param names Map of object names per object id
+     * @param histories Map of GP_HISTORY records per object id
+     */
+    void updateGraphs(Map<Integer, String> names, Map<Integer, List<GpHistory>> histories)
+            throws IOException, SecurityException, ReflectiveOperationException {
+        GraphManifest manifest = new GraphManifest(Path.of(manifestFile));
+        switch (plotMode) {
+        case combined:
+            GraphManifest.Hasher combinedHasher = newHasher();
+            DatasetBuilder combined = newDatasetBuilder(false);
+            histories.forEach((id, history) -> {
+                combined.add(id, seriesName(id, names.get(id)), history);
+                combinedHasher.update(id, names.get(id), history);
+            });
+            generateCombinedGraph(manifest, names, combined, combinedHasher.digest(), false);
+            break;
+        case distinct:
+            for (Map.Entry<Integer, List<GpHistory>> e : histories.entrySet()) {
+                generateDistinctGraph(manifest, e.getKey(), names.get(e.getKey()), e.getValue(), false);
+            }
+            break;
+        case aggregate:
+            GraphManifest.Hasher aggregateHasher = newHasher();
+            EnvelopeBuilder envelope = newEnvelopeBuilder();
+            histories.forEach((id, history) -> {
+                envelope.add(history);
+                aggregateHasher.update(id, names.get(id), history);
+            });
+            generateAggregateGraph(manifest, names, envelope, aggregateHasher.digest(), false);
+            break;
+        case grid:
+            GraphManifest.Hasher gridHasher = newHasher();
+            Map<Integer, List<TimeSeriesCollection>> panels = new TreeMap<>();
+            histories.forEach((id, history) -> {
+                panels.put(id, buildDistinctDatasets(id, names.get(id), history));
+                gridHasher.update(id, names.get(id), history);
+            });
+            generateGridGraph(manifest, names, panels, gridHasher.digest(), false);
+            break;
+        default:
+            throw new UnsupportedOperationException(Objects.toString(plotMode));
+        }
+    }
+
+    private void generateDistinctGraph(GraphManifest manifest, Integer id, String objectName,
+            List<GpHistory> history, boolean open)
+            throws IOException, SecurityException, ReflectiveOperationException {
+        String baseName = objectName.replace('/', '-').replace('\\', '-') + " altitude";
+        String hash = newHasher().update(id, objectName, history).digest();
+        List<String> outdated = outdatedFiles(manifest, baseName, hash);
+        if (outdated.isEmpty()) {
+            logger.info("Graph for satellite {} is up to date: {}", id, baseName);
+        } else {
+            logger.info("Generating graph for satellite {} - {}", id, objectName);
+            List<TimeSeriesCollection> data = buildDistinctDatasets(id, objectName, history);
+            writeGraph(manifest, baseName, hash, outdated, objectName + " altitude", data,
+                    title -> GraphExporter.chart(createChart(data, title), width, height));
+            logger.info("Graph generated for satellite {}: {}", id, outdated);
+        }
+        if (open) {
+            openGraph(outputFile(baseName, outputFormats.get(0)));
+        }
+    }
+
+    private void generateCombinedGraph(GraphManifest manifest, Map<Integer, String> names,
+            DatasetBuilder datasets, String hash, boolean open)
+            throws IOException, SecurityException, ReflectiveOperationException {
+        Set<Integer> ids = names.keySet();
+        Set<String> objectNames = new TreeSet<>(names.values().stream().collect(toSet()));
+        String baseName = baseName(combinedFileName);
+        List<String> outdated = outdatedFiles(manifest, baseName, hash);
+        if (outdated.isEmpty()) {
+            logger.info("Graph for satellites {} is up to date: {}", ids, baseName);
+        } else {
             logger.info("Generating graph for satellites {} - {}", ids, objectNames);
-            Files.writeString(Path.of(combinedFileName),
-                    generateSVGForChart(
-                            createChart(createDatasets(histories, names, false),
-                                    (showApoapsis && showPeriapsis ? "Altitude of "
-                                            : showApoapsis ? "Apoapsis of " : "Periapsis of ")
-                                            + String.join(", ", objectNames)),
-                            width, height));
-            logger.info("Graph generated for satellites {}: {}", ids, combinedFileName);
-            openGraph(combinedFileName);
+            List<TimeSeriesCollection> data = datasets.build();
+            writeGraph(manifest, baseName, hash, outdated,
+                    (showApoapsis && showPeriapsis ? "Altitude of "
+                            : showApoapsis ? "Apoapsis of " : "Periapsis of ") + String.join(", ", objectNames),
+                    data, title -> GraphExporter.chart(createChart(data, title), width, height));
+            logger.info("Graph generated for satellites {}: {}", ids, outdated);
+        }
+        if (open) {
+            openGraph(outputFile(baseName, outputFormats.get(0)));
+        }
+    }
+
+    private List<TimeSeriesCollection> buildDistinctDatasets(Integer id, String objectName,
+            List<GpHistory> history) {
+        DatasetBuilder datasets = newDatasetBuilder(true);
+        datasets.add(id, seriesName(id, objectName), history);
+        return datasets.build();
+    }
+
+    private void generateGridGraph(GraphManifest manifest, Map<Integer, String> names,
+            Map<Integer, List<TimeSeriesCollection>> panels, String hash, boolean open)
+            throws IOException, SecurityException, ReflectiveOperationException {
+        String baseName = baseName(combinedFileName);
+        List<String> outdated = outdatedFiles(manifest, baseName, hash);
+        // Interactive output colors and labels series per dataset, it cannot tell panels apart
+        if (outdated.remove(outputFile(baseName, OutputFormat.html))) {
+            logger.warn("Output format {} is not supported in grid plot mode", OutputFormat.html);
+        }
+        if (outdated.isEmpty()) {
+            logger.info("Grid graph of {} satellites is up to date: {}", names.size(), baseName);
+        } else {
+            logger.info("Generating grid graph of {} satellites", names.size());
+            writeGraph(manifest, baseName, hash, outdated,
+                    (showApoapsis && showPeriapsis ? "Altitude of "
+                            : showApoapsis ? "Apoapsis of " : "Periapsis of ")
+                            + String.join(", ", new TreeSet<>(names.values())),
+                    panels.values().stream().flatMap(List::stream).collect(toList()), title -> {
+                        List<JFreeChart> charts = new ArrayList<>();
+                        for (Map.Entry<Integer, List<TimeSeriesCollection>> e : panels.entrySet()) {
+                            charts.add(createChart(e.getValue(), names.get(e.getKey())));
+                        }
+                        if (gridSharedAxes) {
+                            GridRenderer.shareAxes(charts);
+                        }
+                        return GraphExporter.grid(charts, GridRenderer.columns(charts.size(), gridColumns),
+                                gridPanelWidth, gridPanelHeight);
+                    });
+            logger.info("Grid graph generated for {} satellites: {}", names.size(), outdated);
+        }
+        if (open) {
+            openGraph(outputFile(baseName, outputFormats.get(0)));
+        }
+    }
+
+    private void generateAggregateGraph(GraphManifest manifest, Map<Integer, String> names,
+            EnvelopeBuilder envelopeBuilder, String hash, boolean open)
+            throws IOException, SecurityException, ReflectiveOperationException {
+        Set<Integer> ids = names.keySet();
+        Set<String> objectNames = new TreeSet<>(names.values().stream().collect(toSet()));
+        String baseName = baseName(combinedFileName);
+        List<String> outdated = outdatedFiles(manifest, baseName, hash);
+        if (outdated.isEmpty()) {
+            logger.info("Graph for {} satellites is up to date: {}", ids.size(), baseName);
+        } else {
+            logger.info("Generating envelope graph for {} satellites - {}", ids.size(), objectNames);
+            EnvelopeBuilder.Envelope envelope = envelopeBuilder.build();
+            writeGraph(manifest, baseName, hash, outdated,
+                    (showApoapsis && showPeriapsis ? "Altitude envelope of "
+                            : showApoapsis ? "Apoapsis envelope of " : "Periapsis envelope of ")
+                            + String.join(", ", objectNames),
+                    List.of(envelope.lines),
+                    title -> GraphExporter.chart(createAggregateChart(envelope, title), width, height));
+            logger.info("Graph generated for {} satellites: {}", ids.size(), outdated);
+        }
+        if (open) {
+            openGraph(outputFile(baseName, outputFormats.get(0)));
+        }
+    }
+
+    private static String baseName(String filename) {
+        int dot = filename.lastIndexOf('.');
+        return dot > Math.max(filename.lastIndexOf('/'), filename.lastIndexOf('\\')) ? filename.substring(0, dot)
+                : filename;
+    }
+
+    private static String outputFile(String baseName, OutputFormat format) {
+        return baseName + '.' + format;
+    }
+
+    private List<String> outdatedFiles(GraphManifest manifest, String baseName, String hash) {
+        return outputFormats.stream().map(f -> outputFile(baseName, f))
+                .filter(f -> !skipUnchangedGraphs || !manifest.isUpToDate(f, hash)).collect(toList());
+    }
+
+    @FunctionalInterface
+    private interface DrawingFactory {
+        GraphExporter.Drawing createDrawing(String title) throws ReflectiveOperationException;
+    }
+
+    /**
+     * Writes a graph in all requested output formats whose file is outdated. The
+     * graph is laid out once, then all formats are written concurrently from it.
+     *
+     * @param datasets time series drawn by interactive output and dumped as CSV
+     * @param drawingFactory lays out the graph drawn by static output
+     */
+    private void writeGraph(GraphManifest manifest, String baseName, String hash, List<String> outdated,
+            String title, List<TimeSeriesCollection> datasets, DrawingFactory drawingFactory)
+            throws IOException, SecurityException, ReflectiveOperationException {
+        GraphExporter.Drawing drawing = outputFormats.stream().anyMatch(
+                f -> f.isStatic() && outdated.contains(outputFile(baseName, f)))
+                        ? drawingFactory.createDrawing(title)
+                        : null;
+        Map<String, CompletableFuture<Void>> tasks = new LinkedHashMap<>();
+        for (OutputFormat format : outputFormats) {
+            String filename = outputFile(baseName, format);
+            if (outdated.contains(filename)) {
+                tasks.put(filename, CompletableFuture.runAsync(() -> {
+                    try {
+                        writeGraph(format, Path.of(filename), title, datasets, drawing);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }));
+            }
+        }
+        IOException error = null;
+        for (Map.Entry<String, CompletableFuture<Void>> task : tasks.entrySet()) {
+            try {
+                task.getValue().join();
+                manifest.update(task.getKey(), hash);
+            } catch (CompletionException e) {
+                logger.error("Unable to write {}: {}", task.getKey(), e.getCause().getMessage());
+                if (error == null) {
+                    error = e.getCause() instanceof UncheckedIOException
+                            ? ((UncheckedIOException) e.getCause()).getCause()
+                            : new IOException(e.getCause());
+                }
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    private void writeGraph(OutputFormat format, Path file, String title, List<TimeSeriesCollection> datasets,
+            GraphExporter.Drawing drawing) throws IOException {
+        switch (format) {
+        case svg:
+            Files.writeString(file, generateSVG(drawing));
+            break;
+        case png:
+            GraphExporter.writePNG(file, drawing);
+            break;
+        case pdf:
+            GraphExporter.writePDF(file, title, drawing);
+            break;
+        case html:
+            new LodHtmlWriter(lodBucketsPerTile, width, height, showLegend).write(file, title, datasets);
+            break;
+        case csv:
+            GraphExporter.writeCSV(file, datasets);
+            break;
+        default:
+            throw new UnsupportedOperationException(Objects.toString(format));
         }
     }
 
@@ -364,7 +704,7 @@ public class GraphService {
         }
     }
 
-    private static String findObjectName(Map<String, String[]> map, Integer id, List<GpHistory> history) {
+    static String findObjectName(Map<String, String[]> map, Integer id, List<GpHistory> history) {
         String objectName = history.get(0).getObjectName();
         String idAsString = id.toString();
         Optional<String[]> row = map.values().stream().filter(t -> t[2].equals(idAsString)).findFirst();
@@ -375,26 +715,60 @@ public class GraphService {
         return objectName;
     }
 
-    private List<Integer> getSatIdsFromSatIntDes(Map<String, String[]> map) {
+    List<Integer> getSatIdsFromSatIntDes(Map<String, String[]> map) throws InterruptedException {
+        Map<String, Integer> resolved = resolveMissingDesignators(map);
         return satIntlDes.stream().flatMap(d -> {
             try {
-                return d.endsWith("*") ? mapMultiId(d, map) : mapSingleId(d, map);
-            } catch (IOException | InterruptedException | NumberFormatException e) {
+                return d.endsWith("*") ? mapMultiId(d, map, resolved) : mapSingleId(d, map, resolved);
+            } catch (NumberFormatException e) {
                 logger.error("Failed to retrieve satcat " + d, e);
                 return Stream.empty();
             }
         }).filter(Objects::nonNull).distinct().collect(toList());
     }
 
-    private Stream<Integer> mapSingleId(String d, Map<String, String[]> map)
-            throws JsonParseException, JsonMappingException, IOException, InterruptedException {
-        Integer catalogNumber = null;
-        String[] strings = map.get(d.trim());
-        final String id = strings == null ? null : strings[2];
-        if (id != null && !id.isBlank()) {
-            catalogNumber = Integer.valueOf(id);
-        } else {
-            catalogNumber = spaceTrack.findCatalogNumber(d.trim());
+    private static Integer catalogNumber(String[] strings) {
+        String id = strings == null ? null : strings[2];
+        return id != null && !id.isBlank() ? Integer.valueOf(id) : null;
+    }
+
+    /**
+     * Gathers all international designators and patterns missing from the CelesTrak
+     * mapping, and resolves them at once with Space-Track.
+     *
+     * @param map CelesTrak mapping
+     * @return catalog numbers per international designator, possibly including
+     *         other objects of the same launches
+     */
+    private Map<String, Integer> resolveMissingDesignators(Map<String, String[]> map) throws InterruptedException {
+        Set<String> designators = new TreeSet<>();
+        Set<String> patterns = new TreeSet<>();
+        for (String d : satIntlDes) {
+            if (d.endsWith("*")) {
+                String des = d.substring(0, d.lastIndexOf('*')).trim();
+                if (map.entrySet().stream()
+                        .noneMatch(e -> e.getKey().startsWith(des) && catalogNumber(e.getValue()) != null)) {
+                    patterns.add(des);
+                }
+            } else if (catalogNumber(map.get(d.trim())) == null) {
+                designators.add(d.trim());
+            }
+        }
+        if (designators.isEmpty() && patterns.isEmpty()) {
+            return Map.of();
+        }
+        try {
+            return spaceTrack.findCatalogNumbers(designators, patterns);
+        } catch (IOException e) {
+            logger.error("Failed to retrieve satcat " + designators + " " + patterns, e);
+            return Map.of();
+        }
+    }
+
+    private Stream<Integer> mapSingleId(String d, Map<String, String[]> map, Map<String, Integer> resolved) {
+        Integer catalogNumber = catalogNumber(map.get(d.trim()));
+        if (catalogNumber == null) {
+            catalogNumber = resolved.get(d.trim());
         }
         if (catalogNumber != null) {
             logger.info("Mapped satellite international designator {} to catalog number {}", d, catalogNumber);
@@ -403,19 +777,16 @@ public class GraphService {
         return Stream.empty();
     }
 
-    private Stream<Integer> mapMultiId(String d, Map<String, String[]> map)
-            throws InterruptedException, JsonParseException, JsonMappingException, IOException {
+    private Stream<Integer> mapMultiId(String d, Map<String, String[]> map, Map<String, Integer> resolved) {
         String des = d.substring(0, d.lastIndexOf('*')).trim();
 
         List<Integer> catalogNumbers = map.entrySet().stream()
-                .filter(e -> e.getKey().startsWith(des)).map(e -> {
-            String[] strings = e.getValue();
-            String id = strings == null ? null : strings[2];
-            return id != null && !id.isBlank() ? Integer.valueOf(id) : null;
-        }).filter(Objects::nonNull).sorted().collect(toList());
+                .filter(e -> e.getKey().startsWith(des)).map(e -> catalogNumber(e.getValue()))
+                .filter(Objects::nonNull).sorted().collect(toList());
 
         if (catalogNumbers.isEmpty()) {
-            catalogNumbers = spaceTrack.findCatalogNumbers(des);
+            catalogNumbers = resolved.entrySet().stream().filter(e -> e.getKey().startsWith(des))
+                    .map(Map.Entry::getValue).sorted().collect(toList());
         }
 
         catalogNumbers.removeAll(satIdsExcl);
@@ -428,6 +799,13 @@ public class GraphService {
 
     public void generateGraphs()
             throws IOException, InterruptedException, SecurityException, ReflectiveOperationException {
+        if (bulkHistory.isEnabled()) {
+            Map<String, String[]> map = celestrak.getCelestrakMapping();
+            List<Integer> ids = new ArrayList<>(bulkHistory.fetchCatalog());
+            ids.removeAll(satIdsExcl);
+            doGenerateGraphs(ids, map);
+            return;
+        }
         logger.info("Generating graphs for {}", satIntlDes);
         if (!satIntlDes.isEmpty()) {
             // SpaceTrack API has a very restrictive API Throttling, so download a mapping
@@ -0,0 +1,125 @@
+package com.github.donvip;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import org.jfree.chart.JFreeChart;
+import org.jfree.chart.axis.ValueAxis;
+import org.jfree.chart.plot.XYPlot;
+import org.jfree.data.Range;
+import org.jfree.data.general.DatasetUtils;
+import org.jfree.svg.SVGGraphics2D;
+
+/**
+ * Lays out several charts as a grid of small multiples in a single SVG
+ * document. Panels are rendered concurrently on the common fork-join pool,
+ * each one to its own {@link SVGGraphics2D}, then composited as nested
+ * {@code <svg>} elements.
+ */
+final class GridRenderer {
+
+    private GridRenderer() {
+        // Hide default constructor for utilities classes
+    }
+
+    /**
+     * Computes the number of columns of a grid.
+     *
+     * @param panels number of panels
+     * @param columns requested number of columns, or 0 to get a square grid
+     * @return the number of columns
+     */
+    static int columns(int panels, int columns) {
+        return Math.max(1, Math.min(panels, columns > 0 ? columns : (int) Math.ceil(Math.sqrt(panels))));
+    }
+
+    /**
+     * Makes all panels share the same domain and range, so that they can be
+     * compared at a glance.
+     *
+     * @param panels charts of the grid, whose plot is an {@link XYPlot}
+     */
+    static void shareAxes(List<JFreeChart> panels) {
+        Range domain = null;
+        Range range = null;
+        for (JFreeChart panel : panels) {
+            XYPlot plot = panel.getXYPlot();
+            for (int i = 0; i < plot.getDatasetCount(); i++) {
+                if (plot.getDataset(i) != null) {
+                    domain = Range.combine(domain, DatasetUtils.findDomainBounds(plot.getDataset(i)));
+                    range = Range.combine(range, DatasetUtils.findRangeBounds(plot.getDataset(i)));
+                }
+            }
+        }
+        for (JFreeChart panel : panels) {
+            XYPlot plot = panel.getXYPlot();
+            if (domain != null) {
+                ValueAxis axis = plot.getDomainAxis();
+                axis.setRange(Range.expand(domain, axis.getLowerMargin(), axis.getUpperMargin()), true, false);
+            }
+            if (range != null) {
+                for (int i = 0; i < plot.getRangeAxisCount(); i++) {
+                    ValueAxis axis = plot.getRangeAxis(i);
+                    if (axis != null) {
+                        axis.setRange(Range.expand(range, axis.getLowerMargin(), axis.getUpperMargin()), true,
+                                false);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Renders charts as a grid.
+     *
+     * @param panels charts to render, row by row
+     * @param columns number of columns
+     * @param panelWidth width of each panel
+     * @param panelHeight height of each panel
+     * @return the SVG document
+     */
+    static String generateSVG(List<JFreeChart> panels, int columns, int panelWidth, int panelHeight) {
+        String[] elements = IntStream.range(0, panels.size()).parallel().mapToObj(i -> {
+            SVGGraphics2D g2 = new SVGGraphics2D(panelWidth, panelHeight);
+            // Keep ids of clip paths and gradients unique across panels
+            g2.setDefsKeyPrefix("p" + i + '_');
+            JFreeChart panel = panels.get(i);
+            synchronized (panel) {
+                panel.draw(g2, new Rectangle(panelWidth, panelHeight));
+            }
+            return g2.getSVGElement(null).replaceFirst("<svg", String.format("<svg x=\"%d\" y=\"%d\"",
+                    (i % columns) * panelWidth, (i / columns) * panelHeight));
+        }).toArray(String[]::new);
+
+        int rows = (panels.size() + columns - 1) / columns;
+        StringBuilder sb = new StringBuilder(String.format(
+                "<svg xmlns=\"http://www.w3.org/2000/svg\" xmlns:xlink=\"http://www.w3.org/1999/xlink\""
+                        + " width=\"%d\" height=\"%d\">",
+                columns * panelWidth, rows * panelHeight));
+        for (String element : elements) {
+            sb.append(element);
+        }
+        return sb.append("</svg>").toString();
+    }
+
+    /**
+     * Draws charts as a grid, sequentially, for targets which cannot be split.
+     *
+     * @param g2 target graphics
+     * @param panels charts to draw, row by row
+     * @param columns number of columns
+     * @param panelWidth width of each panel
+     * @param panelHeight height of each panel
+     */
+    static void draw(Graphics2D g2, List<JFreeChart> panels, int columns, int panelWidth, int panelHeight) {
+        for (int i = 0; i < panels.size(); i++) {
+            JFreeChart panel = panels.get(i);
+            synchronized (panel) {
+                panel.draw(g2, new Rectangle((i % columns) * panelWidth, (i / columns) * panelHeight, panelWidth,
+                        panelHeight));
+            }
+        }
+    }
+}
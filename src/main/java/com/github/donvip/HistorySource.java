@@ -0,0 +1,26 @@
+package com.github.donvip;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.List;
+
+import com.github.donvip.GpHistoryQuery.GpHistory;
+
+/**
+ * Source of GP_HISTORY records of an object.
+ */
+public interface HistorySource {
+
+    /**
+     * Fetches the GP_HISTORY records of an object.
+     *
+     * @param id object id (catalog number)
+     * @param startDate start date (excluded), ignored if {@code null}
+     * @param endDate end date (excluded), ignored if {@code null}
+     * @param minAltitude minimum periapsis, ignored if zero
+     * @return records sorted by epoch, or an empty list if the source does not
+     *         know the object
+     */
+    List<GpHistory> fetchHistory(Integer id, Instant startDate, Instant endDate, double minAltitude)
+            throws IOException, InterruptedException;
+}
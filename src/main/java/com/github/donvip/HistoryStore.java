@@ -0,0 +1,280 @@
+package com.github.donvip;
+
+import static java.util.Comparator.comparing;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.threeten.extra.scale.UtcInstant;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.github.donvip.GpHistoryQuery.GpHistory;
+
+/**
+ * Local store of GP_HISTORY records, with one file per object containing one
+ * JSON record per line, sorted by epoch.
+ * <p>
+ * Records are accumulated across runs and never pruned: reads return all
+ * records merged so far. The epoch windows known to be complete for an object
+ * are recorded next to its records, as closed intervals, so that
+ * {@link ChainedHistorySource} can fetch the missing windows from other
+ * sources.
+ */
+@Service
+public class HistoryStore implements HistorySource {
+
+    private static final DateTimeFormatter SPACE_TRACK_DATE = DateTimeFormatter
+            .ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSSSS").withZone(ZoneOffset.UTC);
+
+    static final Comparator<GpHistory> EPOCH_ORDER = comparing(GpHistory::getEpoch)
+            .thenComparing(GpHistory::getGpId);
+
+    private static final String EXTENSION = ".json";
+    private static final String COVERAGE_EXTENSION = ".coverage";
+    /** Unbounded start of a window, in coverage files */
+    private static final String UNBOUNDED = "-";
+
+    @Value("${historyStoreDirectory:.history}")
+    private String directory;
+
+    private final ObjectMapper mapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+            .registerModule(new SimpleModule().addSerializer(UtcInstant.class, new UtcInstantSerializer()));
+
+    private static class UtcInstantSerializer extends StdSerializer<UtcInstant> {
+        private static final long serialVersionUID = 1L;
+
+        UtcInstantSerializer() {
+            super(UtcInstant.class);
+        }
+
+        @Override
+        public void serialize(UtcInstant value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeString(SPACE_TRACK_DATE.format(value.toInstant()));
+        }
+    }
+
+    private Path file(Integer id) {
+        return Path.of(directory, id + EXTENSION);
+    }
+
+    private Path coverageFile(Integer id) {
+        return Path.of(directory, id + COVERAGE_EXTENSION);
+    }
+
+    /**
+     * Returns the ids of all objects having records in the store.
+     */
+    public Set<Integer> ids() throws IOException {
+        Set<Integer> ids = new TreeSet<>();
+        Path dir = Path.of(directory);
+        if (Files.isDirectory(dir)) {
+            try (Stream<Path> files = Files.list(dir)) {
+                files.map(f -> f.getFileName().toString()).filter(f -> f.endsWith(EXTENSION))
+                        .forEach(f -> ids.add(Integer.valueOf(f.substring(0, f.length() - EXTENSION.length()))));
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Reads the stored records of an object, with the same filtering semantics as
+     * {@link SpaceTrackService#fetchHistory}. The result depends on the windows
+     * merged so far, see {@link #gaps} to know whether it is complete.
+     *
+     * @return records sorted by epoch, or an empty list if the object is unknown
+     */
+    public List<GpHistory> read(Integer id, Instant startDate, Instant endDate, double minAltitude)
+            throws IOException {
+        List<GpHistory> result = new ArrayList<>();
+        Path file = file(id);
+        if (Files.exists(file)) {
+            try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    GpHistory gp = mapper.readValue(line, GpHistory.class);
+                    if (matches(gp, startDate, endDate, minAltitude)) {
+                        result.add(gp);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<GpHistory> fetchHistory(Integer id, Instant startDate, Instant endDate, double minAltitude)
+            throws IOException {
+        return read(id, startDate, endDate, minAltitude);
+    }
+
+    static boolean matches(GpHistory gp, Instant startDate, Instant endDate, double minAltitude) {
+        Instant epoch = gp.getEpoch().toInstant();
+        return (startDate == null || epoch.isAfter(startDate)) && (endDate == null || epoch.isBefore(endDate))
+                && (minAltitude == 0.0 || gp.getPeriapsis() > minAltitude);
+    }
+
+    /**
+     * Merges new records of an object into the store. The stored file and the
+     * sorted new records are merged in a single streaming pass, so that only the
+     * new records are held in memory. Records already stored are ignored.
+     *
+     * @param id object id
+     * @param records new records of the object, in any order (sorted in place)
+     */
+    public void merge(Integer id, List<GpHistory> records) throws IOException {
+        records.sort(EPOCH_ORDER);
+        Path file = file(id);
+        Files.createDirectories(file.getParent());
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            Iterator<GpHistory> it = records.iterator();
+            GpHistory added = it.hasNext() ? it.next() : null;
+            GpHistory last = null;
+            if (Files.exists(file)) {
+                try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        GpHistory stored = mapper.readValue(line, GpHistory.class);
+                        while (added != null && EPOCH_ORDER.compare(added, stored) <= 0) {
+                            if (EPOCH_ORDER.compare(added, stored) < 0
+                                    && (last == null || EPOCH_ORDER.compare(added, last) != 0)) {
+                                write(writer, added);
+                                last = added;
+                            }
+                            added = it.hasNext() ? it.next() : null;
+                        }
+                        writer.write(line);
+                        writer.newLine();
+                        last = stored;
+                    }
+                }
+            }
+            while (added != null) {
+                if (last == null || EPOCH_ORDER.compare(added, last) != 0) {
+                    write(writer, added);
+                    last = added;
+                }
+                added = it.hasNext() ? it.next() : null;
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads the windows known to be complete for an object.
+     *
+     * @return disjoint {from, to} closed intervals sorted by start, {@code from}
+     *         being {@link Instant#MIN} if unbounded
+     */
+    private List<Instant[]> coverage(Integer id) throws IOException {
+        List<Instant[]> coverage = new ArrayList<>();
+        Path file = coverageFile(id);
+        if (Files.exists(file)) {
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                String[] bounds = line.trim().split(" ");
+                if (bounds.length == 2) {
+                    coverage.add(new Instant[] { UNBOUNDED.equals(bounds[0]) ? Instant.MIN : Instant.parse(bounds[0]),
+                            Instant.parse(bounds[1]) });
+                }
+            }
+        }
+        return coverage;
+    }
+
+    /**
+     * Computes the parts of a window which are not known to be complete for an
+     * object. Records cannot have an epoch in the future: the window is bounded
+     * by the current time.
+     *
+     * @param id object id
+     * @param startDate start of the window, unbounded if {@code null}
+     * @param endDate end of the window, unbounded if {@code null}
+     * @param now current time
+     * @return missing {from, to} closed intervals, {@code from} being
+     *         {@link Instant#MIN} if unbounded
+     */
+    public List<Instant[]> gaps(Integer id, Instant startDate, Instant endDate, Instant now) throws IOException {
+        List<Instant[]> gaps = new ArrayList<>();
+        Instant cursor = startDate != null ? startDate : Instant.MIN;
+        Instant end = endDate != null && endDate.isBefore(now) ? endDate : now;
+        for (Instant[] covered : coverage(id)) {
+            if (!cursor.isBefore(end) || covered[0].isAfter(end)) {
+                break;
+            }
+            if (!covered[1].isBefore(cursor)) {
+                if (covered[0].isAfter(cursor)) {
+                    gaps.add(new Instant[] { cursor, covered[0] });
+                }
+                cursor = covered[1];
+            }
+        }
+        if (cursor.isBefore(end)) {
+            gaps.add(new Instant[] { cursor, end });
+        }
+        return gaps;
+    }
+
+    /**
+     * Records that all records of an object in a window have been merged.
+     *
+     * @param id object id
+     * @param from start of the window (included), {@link Instant#MIN} if
+     *            unbounded
+     * @param to end of the window (included)
+     */
+    public void cover(Integer id, Instant from, Instant to) throws IOException {
+        List<Instant[]> coverage = coverage(id);
+        coverage.add(new Instant[] { from, to });
+        coverage.sort(comparing((Instant[] w) -> w[0]));
+        List<String> lines = new ArrayList<>();
+        Instant[] current = null;
+        for (Instant[] w : coverage) {
+            if (current != null && !w[0].isAfter(current[1])) {
+                current[1] = w[1].isAfter(current[1]) ? w[1] : current[1];
+            } else {
+                if (current != null) {
+                    lines.add(format(current));
+                }
+                current = w.clone();
+            }
+        }
+        lines.add(format(current));
+        Path file = coverageFile(id);
+        Files.createDirectories(file.getParent());
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(tmp, lines, StandardCharsets.UTF_8);
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static String format(Instant[] window) {
+        return (Instant.MIN.equals(window[0]) ? UNBOUNDED : window[0].toString()) + ' ' + window[1];
+    }
+
+    private void write(BufferedWriter writer, GpHistory gp) throws IOException {
+        writer.write(mapper.writeValueAsString(gp));
+        writer.newLine();
+    }
+}
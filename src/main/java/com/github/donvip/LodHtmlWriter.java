@@ -0,0 +1,323 @@
+package com.github.donvip;
+
+import java.awt.Color;
+import java.awt.Paint;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.jfree.chart.plot.DefaultDrawingSupplier;
+import org.jfree.data.time.TimeSeries;
+import org.jfree.data.time.TimeSeriesCollection;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Writes an interactive HTML graph backed by a multi-resolution pyramid of the
+ * plotted series.
+ * <p>
+ * Level {@code l} of the pyramid splits the time range into
+ * {@code bucketsPerTile * 2^l} buckets, stored as {@code 2^l} tiles, each
+ * bucket keeping the minimum and maximum value of each series. The finest level
+ * holds the raw points. The level drawn by the initial view is embedded in the
+ * page, other tiles are written as scripts next to it and only loaded when the
+ * user zooms in.
+ */
+class LodHtmlWriter {
+
+    private static final String TEMPLATE = "lod-graph.html";
+
+    private final int bucketsPerTile;
+    private final int width;
+    private final int height;
+    private final boolean showLegend;
+
+    LodHtmlWriter(int bucketsPerTile, int width, int height, boolean showLegend) {
+        this.bucketsPerTile = bucketsPerTile;
+        this.width = width;
+        this.height = height;
+        this.showLegend = showLegend;
+    }
+
+    /**
+     * Raw points of a series, as time offsets from the start of the graph.
+     */
+    private static final class Points {
+        private final double[] x;
+        private final double[] y;
+
+        private Points(TimeSeries series, long start) {
+            int n = series.getItemCount();
+            x = new double[n];
+            y = new double[n];
+            for (int i = 0; i < n; i++) {
+                x[i] = series.getTimePeriod(i).getFirstMillisecond() - start;
+                Number value = series.getValue(i);
+                y[i] = value != null ? value.doubleValue() : Double.NaN;
+            }
+        }
+    }
+
+    /**
+     * One level of the pyramid: minimum and maximum value per bucket and series.
+     */
+    private static final class Level {
+        private final double[][] min;
+        private final double[][] max;
+
+        private Level(int series, int buckets) {
+            min = new double[series][buckets];
+            max = new double[series][buckets];
+            for (int s = 0; s < series; s++) {
+                Arrays.fill(min[s], Double.NaN);
+                Arrays.fill(max[s], Double.NaN);
+            }
+        }
+
+        private void add(int s, int b, double value) {
+            if (!Double.isNaN(value)) {
+                min[s][b] = Double.isNaN(min[s][b]) ? value : Math.min(min[s][b], value);
+                max[s][b] = Double.isNaN(max[s][b]) ? value : Math.max(max[s][b], value);
+            }
+        }
+
+        private Level coarser() {
+            Level coarser = new Level(min.length, min[0].length / 2);
+            for (int s = 0; s < min.length; s++) {
+                for (int b = 0; b < min[s].length; b++) {
+                    coarser.add(s, b / 2, min[s][b]);
+                    coarser.add(s, b / 2, max[s][b]);
+                }
+            }
+            return coarser;
+        }
+    }
+
+    void write(Path htmlFile, String title, List<TimeSeriesCollection> datasets) throws IOException {
+        // Flatten series of all datasets. Series of the same index share the same color
+        List<Points> points = new ArrayList<>();
+        List<Integer> colorIndexes = new ArrayList<>();
+        List<String> legend = new ArrayList<>();
+        long start = Long.MAX_VALUE;
+        long end = Long.MIN_VALUE;
+        double ymin = Double.POSITIVE_INFINITY;
+        double ymax = Double.NEGATIVE_INFINITY;
+        for (TimeSeriesCollection dataset : datasets) {
+            for (int i = 0; i < dataset.getSeriesCount(); i++) {
+                TimeSeries series = dataset.getSeries(i);
+                if (series.getItemCount() > 0) {
+                    start = Math.min(start, series.getTimePeriod(0).getFirstMillisecond());
+                    end = Math.max(end, series.getTimePeriod(series.getItemCount() - 1).getFirstMillisecond());
+                    ymin = Math.min(ymin, series.getMinY());
+                    ymax = Math.max(ymax, series.getMaxY());
+                }
+            }
+        }
+        if (start > end) {
+            start = end = 0;
+            ymin = ymax = 0;
+        }
+        double span = Math.max(1, end - start);
+        int maxPoints = 0;
+        for (TimeSeriesCollection dataset : datasets) {
+            for (int i = 0; i < dataset.getSeriesCount(); i++) {
+                Points p = new Points(dataset.getSeries(i), start);
+                points.add(p);
+                colorIndexes.add(i);
+                maxPoints = Math.max(maxPoints, p.x.length);
+            }
+        }
+        for (int i = 0; i < datasets.get(0).getSeriesCount(); i++) {
+            legend.add(datasets.get(0).getSeries(i).getKey().toString());
+        }
+
+        // Finest level holds raw points, each coarser level halves the number of buckets
+        int maxLevel = 0;
+        while (((long) bucketsPerTile << maxLevel) < maxPoints) {
+            maxLevel++;
+        }
+        String tilesDirName = htmlFile.getFileName().toString().replaceFirst("\\.html$", "") + ".tiles";
+        Path tilesDir = htmlFile.resolveSibling(tilesDirName);
+        if (Files.isDirectory(tilesDir)) {
+            try (Stream<Path> files = Files.list(tilesDir)) {
+                for (Path f : (Iterable<Path>) files::iterator) {
+                    Files.delete(f);
+                }
+            }
+        }
+        // Tiles of the level drawn by the initial view are embedded in the page, others are loaded on demand
+        int initialLevel = initialLevel(maxLevel);
+        StringBuilder embedded = new StringBuilder();
+        if (maxLevel == 0) {
+            emitTile(tilesDir, 0, 0, rawTile(points, 0, 0, span), initialLevel, embedded);
+        } else {
+            Files.createDirectories(tilesDir);
+            for (int t = 0; t < (1 << maxLevel); t++) {
+                emitTile(tilesDir, maxLevel, t, rawTile(points, maxLevel, t, span), initialLevel, embedded);
+            }
+            Level level = new Level(points.size(), bucketsPerTile << (maxLevel - 1));
+            double bucketWidth = span / level.min[0].length;
+            for (int s = 0; s < points.size(); s++) {
+                Points p = points.get(s);
+                for (int i = 0; i < p.x.length; i++) {
+                    level.add(s, Math.min(level.min[s].length - 1, (int) (p.x[i] / bucketWidth)), p.y[i]);
+                }
+            }
+            for (int l = maxLevel - 1; l > 0; l--) {
+                for (int t = 0; t < (1 << l); t++) {
+                    emitTile(tilesDir, l, t, bucketTile(level, t, span), initialLevel, embedded);
+                }
+                level = level.coarser();
+            }
+            emitTile(tilesDir, 0, 0, bucketTile(level, 0, span), initialLevel, embedded);
+        }
+
+        // Page metadata
+        Paint[] paints = DefaultDrawingSupplier.DEFAULT_PAINT_SEQUENCE;
+        List<String> colors = new ArrayList<>();
+        for (Integer index : colorIndexes) {
+            Paint paint = paints[index % paints.length];
+            Color color = paint instanceof Color ? (Color) paint : Color.BLACK;
+            colors.add(String.format("#%02x%02x%02x", color.getRed(), color.getGreen(), color.getBlue()));
+        }
+        Map<String, Object> meta = new LinkedHashMap<>();
+        meta.put("title", title);
+        meta.put("width", width);
+        meta.put("height", height);
+        meta.put("start", start);
+        meta.put("span", span);
+        meta.put("ymin", ymin);
+        meta.put("ymax", ymax);
+        meta.put("bucketsPerTile", bucketsPerTile);
+        meta.put("maxLevel", maxLevel);
+        meta.put("tilesDir", tilesDirName);
+        meta.put("colors", colors);
+        meta.put("legend", showLegend ? legend : List.of());
+
+        String template;
+        try (InputStream in = LodHtmlWriter.class.getResourceAsStream("/" + TEMPLATE)) {
+            template = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        ObjectMapper mapper = new ObjectMapper();
+        Files.writeString(htmlFile,
+                template.replace("/*TITLE*/", title.replace("&", "&amp;").replace("<", "&lt;"))
+                        .replace("/*META*/", mapper.writeValueAsString(meta).replace("</", "<\\/"))
+                        .replace("/*TILE*/", embedded),
+                StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Computes the level drawn by the initial view of the whole time range, the
+     * same way as {@code wantedLevel()} in the page: the coarsest level having
+     * at least one bucket per pixel.
+     */
+    private int initialLevel(int maxLevel) {
+        // Width of the plot area, without the left and right margins of the page
+        int plotWidth = width - 90;
+        int level = (int) Math.ceil(Math.log((double) plotWidth / bucketsPerTile) / Math.log(2));
+        return Math.max(0, Math.min(maxLevel, level));
+    }
+
+    private static void emitTile(Path tilesDir, int level, int tile, String data, int embeddedLevel,
+            StringBuilder embedded) throws IOException {
+        String script = "satDecayTile(" + level + ", " + tile + ", " + data + ");";
+        if (level == embeddedLevel) {
+            embedded.append(script).append('\n');
+        } else {
+            try (Writer w = Files.newBufferedWriter(tilesDir.resolve("L" + level + "-" + tile + ".js"),
+                    StandardCharsets.UTF_8)) {
+                w.write(script);
+            }
+        }
+    }
+
+    /**
+     * Serializes the raw points of all series falling in a tile, as
+     * {@code [[x...], [min...], [max...]]} arrays per series.
+     */
+    private static String rawTile(List<Points> points, int level, int tile, double span) {
+        double tileWidth = span / (1 << level);
+        double from = tile * tileWidth;
+        double to = tile == (1 << level) - 1 ? Double.POSITIVE_INFINITY : from + tileWidth;
+        StringBuilder sb = new StringBuilder("[");
+        for (int s = 0; s < points.size(); s++) {
+            Points p = points.get(s);
+            StringBuilder x = new StringBuilder();
+            StringBuilder y = new StringBuilder();
+            // Points are sorted by time: only visit those of the tile
+            for (int i = lowerBound(p.x, from), end = lowerBound(p.x, to); i < end; i++) {
+                if (!Double.isNaN(p.y[i])) {
+                    append(x, p.x[i], 0);
+                    append(y, p.y[i], 2);
+                }
+            }
+            sb.append(s > 0 ? "," : "").append("[[").append(x).append("],[").append(y).append("],[").append(y)
+                    .append("]]");
+        }
+        return sb.append(']').toString();
+    }
+
+    /**
+     * @return index of the first value not less than {@code key} in sorted
+     *         {@code values}
+     */
+    private static int lowerBound(double[] values, double key) {
+        int low = 0;
+        int high = values.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (values[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Serializes the non-empty buckets of all series falling in a tile, as
+     * {@code [[x...], [min...], [max...]]} arrays per series, {@code x} being the
+     * bucket center.
+     */
+    private String bucketTile(Level level, int tile, double span) {
+        double bucketWidth = span / level.min[0].length;
+        StringBuilder sb = new StringBuilder("[");
+        for (int s = 0; s < level.min.length; s++) {
+            StringBuilder x = new StringBuilder();
+            StringBuilder min = new StringBuilder();
+            StringBuilder max = new StringBuilder();
+            for (int b = tile * bucketsPerTile; b < (tile + 1) * bucketsPerTile; b++) {
+                if (!Double.isNaN(level.min[s][b])) {
+                    append(x, (b + 0.5) * bucketWidth, 0);
+                    append(min, level.min[s][b], 2);
+                    append(max, level.max[s][b], 2);
+                }
+            }
+            sb.append(s > 0 ? "," : "").append("[[").append(x).append("],[").append(min).append("],[").append(max)
+                    .append("]]");
+        }
+        return sb.append(']').toString();
+    }
+
+    private static void append(StringBuilder sb, double value, int decimals) {
+        if (sb.length() > 0) {
+            sb.append(',');
+        }
+        if (decimals == 0) {
+            sb.append(Math.round(value));
+        } else {
+            sb.append(String.format(Locale.ROOT, "%." + decimals + "f", value));
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.github.donvip;
+
+import java.awt.Graphics2D;
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+
+import org.jfree.chart.axis.ValueAxis;
+import org.jfree.chart.plot.CrosshairState;
+import org.jfree.chart.plot.PlotOrientation;
+import org.jfree.chart.plot.PlotRenderingInfo;
+import org.jfree.chart.plot.XYPlot;
+import org.jfree.chart.renderer.xy.XYDotRenderer;
+import org.jfree.chart.renderer.xy.XYItemRendererState;
+import org.jfree.data.xy.XYDataset;
+
+/**
+ * Variant of {@link XYDotRenderer} filling all the dots of a series at once,
+ * as a single shape. When drawing to SVG, this produces a single
+ * {@code <path>} element per series instead of one {@code <rect>} per dot.
+ */
+public class PathXYDotRenderer extends XYDotRenderer {
+
+    private static final long serialVersionUID = 1L;
+
+    private class State extends XYItemRendererState {
+        private final Graphics2D g2;
+        private final Path2D path = new Path2D.Double();
+
+        State(Graphics2D g2, PlotRenderingInfo info) {
+            super(info);
+            this.g2 = g2;
+        }
+
+        @Override
+        public void startSeriesPass(XYDataset dataset, int series, int firstItem, int lastItem, int pass,
+                int passCount) {
+            super.startSeriesPass(dataset, series, firstItem, lastItem, pass, passCount);
+            path.reset();
+        }
+
+        @Override
+        public void endSeriesPass(XYDataset dataset, int series, int firstItem, int lastItem, int pass,
+                int passCount) {
+            super.endSeriesPass(dataset, series, firstItem, lastItem, pass, passCount);
+            if (path.getCurrentPoint() != null) {
+                g2.setPaint(lookupSeriesPaint(series));
+                g2.fill(path);
+                path.reset();
+            }
+        }
+    }
+
+    @Override
+    public XYItemRendererState initialise(Graphics2D g2, Rectangle2D dataArea, XYPlot plot, XYDataset dataset,
+            PlotRenderingInfo info) {
+        return new State(g2, info);
+    }
+
+    @Override
+    public void drawItem(Graphics2D g2, XYItemRendererState state, Rectangle2D dataArea, PlotRenderingInfo info,
+            XYPlot plot, ValueAxis domainAxis, ValueAxis rangeAxis, XYDataset dataset, int series, int item,
+            CrosshairState crosshairState, int pass) {
+        if (!(state instanceof State)) {
+            super.drawItem(g2, state, dataArea, info, plot, domainAxis, rangeAxis, dataset, series, item,
+                    crosshairState, pass);
+            return;
+        }
+        if (!getItemVisible(series, item)) {
+            return;
+        }
+        double x = dataset.getXValue(series, item);
+        double y = dataset.getYValue(series, item);
+        if (!Double.isNaN(y)) {
+            double transX = domainAxis.valueToJava2D(x, dataArea, plot.getDomainAxisEdge());
+            double transY = rangeAxis.valueToJava2D(y, dataArea, plot.getRangeAxisEdge());
+            PlotOrientation orientation = plot.getOrientation();
+            // Same integer positions and sizes as XYDotRenderer
+            int w = getDotWidth();
+            int h = getDotHeight();
+            int px;
+            int py;
+            if (orientation == PlotOrientation.HORIZONTAL) {
+                px = (int) (transY - (h - 1) / 2.0);
+                py = (int) (transX - (w - 1) / 2.0);
+                int tmp = w;
+                w = h;
+                h = tmp;
+            } else {
+                px = (int) (transX - (w - 1) / 2.0);
+                py = (int) (transY - (h - 1) / 2.0);
+            }
+            Path2D path = ((State) state).path;
+            path.moveTo(px, py);
+            path.lineTo(px + w, py);
+            path.lineTo(px + w, py + h);
+            path.lineTo(px, py + h);
+            path.closePath();
+            updateCrosshairValues(crosshairState, x, y, plot.indexOf(dataset), transX, transY, orientation);
+        }
+    }
+}
@@ -20,6 +20,9 @@ public class SatDecayGraphApplication implements ApplicationListener<Application
     @Autowired
     private GraphService graphService;
 
+    @Autowired
+    private DecayWatcher decayWatcher;
+
     public static void main(String[] args) {
         SpringApplication.run(SatDecayGraphApplication.class, args);
     }
@@ -28,6 +31,9 @@ public class SatDecayGraphApplication implements ApplicationListener<Application
     public void onApplicationEvent(ApplicationReadyEvent event) {
         try {
             graphService.generateGraphs();
+            if (decayWatcher.isEnabled()) {
+                decayWatcher.watch();
+            }
         } catch (IOException | InterruptedException | SecurityException | ReflectiveOperationException e) {
             logger.error("Failed to generate graphs", e);
         }
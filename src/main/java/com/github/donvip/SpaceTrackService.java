@@ -2,14 +2,24 @@ package com.github.donvip;
 
 import static java.util.Comparator.comparing;
 import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toMap;
 
 import java.io.IOException;
 import java.time.Instant;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import javax.annotation.PostConstruct;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 
@@ -28,7 +38,9 @@ import com.stevenpaligo.spacetrack.client.predicate.LessThan;
 import com.stevenpaligo.spacetrack.client.predicate.StartsWith;
 
 @Service
-public class SpaceTrackService {
+public class SpaceTrackService implements HistorySource {
+
+    private static final Pattern LAUNCH = Pattern.compile("^\\d{4}-\\d{3}");
 
     @Value("${spaceTrackLogin}")
     private String spaceTrackLogin;
@@ -36,6 +48,9 @@ public class SpaceTrackService {
     @Value("${spaceTrackPassword}")
     private String spaceTrackPassword;
 
+    @Autowired
+    private CacheManager cacheManager;
+
     private CredentialProvider credentials;
 
     @PostConstruct
@@ -43,25 +58,127 @@ public class SpaceTrackService {
         credentials = new DefaultCredentialProvider(spaceTrackLogin, spaceTrackPassword);
     }
 
-    @Cacheable("spaceTrackCatalogNumber")
-    public Integer findCatalogNumber(String des)
+    /**
+     * Resolves international designators and designator prefixes to catalog
+     * numbers, with as few SATCAT queries as possible: a single query is made per
+     * launch (or per prefix), shared by all designators of the same launch.
+     * Results are cached per designator and per prefix, including empty results
+     * of prefixes matching no object.
+     *
+     * @param designators international designators to resolve
+     * @param prefixes international designator prefixes to resolve
+     * @return catalog numbers per international designator, possibly including
+     *         other objects of the same launches
+     */
+    public Map<String, Integer> findCatalogNumbers(Set<String> designators, Set<String> prefixes)
             throws JsonParseException, JsonMappingException, IOException, InterruptedException {
-        List<SatCat> satcat = new SatCatQuery().setCredentials(credentials)
-                .addPredicate(new Equal<>(SatCatQueryField.INTERNATIONAL_DESIGNATOR, des)).execute();
-        return apiThrottle(satcat.isEmpty() ? null : satcat.get(0).getCatalogNumber());
+        Cache designatorCache = cacheManager.getCache("spaceTrackCatalogNumber");
+        Cache prefixCache = cacheManager.getCache("spaceTrackCatalogNumbersByPrefix");
+        Map<String, Integer> result = new TreeMap<>();
+        Set<String> queries = new TreeSet<>();
+        for (String des : designators) {
+            Integer catalogNumber = designatorCache != null ? designatorCache.get(des, Integer.class) : null;
+            if (catalogNumber != null) {
+                result.put(des, catalogNumber);
+            } else {
+                Matcher m = LAUNCH.matcher(des);
+                String launch = m.find() ? m.group() : des;
+                // Launches already queried are cached even when the designator was not found
+                @SuppressWarnings("unchecked")
+                Map<String, Integer> cached = prefixCache != null ? prefixCache.get(launch, Map.class) : null;
+                if (cached != null) {
+                    result.putAll(cached);
+                } else {
+                    queries.add(launch);
+                }
+            }
+        }
+        for (String prefix : prefixes) {
+            @SuppressWarnings("unchecked")
+            Map<String, Integer> cached = prefixCache != null ? prefixCache.get(prefix, Map.class) : null;
+            if (cached != null) {
+                result.putAll(cached);
+            } else {
+                queries.add(prefix);
+            }
+        }
+        // Skip queries already covered by a shorter prefix
+        Set<String> allQueries = new TreeSet<>(queries);
+        queries.removeIf(q -> allQueries.stream().anyMatch(p -> !p.equals(q) && q.startsWith(p)));
+        for (String prefix : queries) {
+            Map<String, Integer> found = new TreeMap<>();
+            for (SatCat satcat : new SatCatQuery().setCredentials(credentials)
+                    .addPredicate(new StartsWith<>(SatCatQueryField.INTERNATIONAL_DESIGNATOR, prefix)).execute()) {
+                found.put(satcat.getInternationalDesignator(), satcat.getCatalogNumber());
+            }
+            if (prefixCache != null) {
+                prefixCache.put(prefix, found);
+                // Also cache the results of skipped queries, found or not
+                for (String skipped : allQueries) {
+                    if (!skipped.equals(prefix) && skipped.startsWith(prefix)) {
+                        prefixCache.put(skipped, new TreeMap<>(found.entrySet().stream()
+                                .filter(e -> e.getKey().startsWith(skipped))
+                                .collect(toMap(Map.Entry::getKey, Map.Entry::getValue))));
+                    }
+                }
+            }
+            if (designatorCache != null) {
+                found.forEach(designatorCache::put);
+            }
+            result.putAll(apiThrottle(found));
+        }
+        return result;
     }
 
-    @Cacheable("spaceTrackCatalogNumbers")
-    public List<Integer> findCatalogNumbers(String des)
+    @Override
+    @Cacheable("spaceTrackGpHistory")
+    public List<GpHistory> fetchHistory(Integer id, Instant startDate, Instant endDate, double minAltitude)
             throws JsonParseException, JsonMappingException, IOException, InterruptedException {
-        return apiThrottle(new SatCatQuery().setCredentials(credentials)
-                .addPredicate(new StartsWith<>(SatCatQueryField.INTERNATIONAL_DESIGNATOR, des)).execute().stream()
-                .map(SatCat::getCatalogNumber)
-                .sorted().collect(toList()));
+        return queryHistory(id, startDate, endDate, minAltitude);
     }
 
-    @Cacheable("spaceTrackGpHistory")
-    public List<GpHistory> fetchHistory(Integer id, Instant startDate, Instant endDate, double minAltitude)
+    /**
+     * Fetches the GP_HISTORY records of an object published after the given date,
+     * bypassing the cache. Used to poll for new element sets in watch mode.
+     *
+     * @param since date of the last known record (excluded)
+     * @param endDate end date (excluded), ignored if {@code null}
+     */
+    public List<GpHistory> pollHistory(Integer id, Instant since, Instant endDate, double minAltitude)
+            throws JsonParseException, JsonMappingException, IOException, InterruptedException {
+        return queryHistory(id, since, endDate, minAltitude);
+    }
+
+    /**
+     * Fetches the GP_HISTORY records of all objects having an epoch in the given
+     * time slice, bypassing the cache. Slices are half-open so that consecutive
+     * ones do not miss records having an epoch at their boundary.
+     *
+     * @param from start of time slice (included)
+     * @param to end of time slice (excluded)
+     * @param minAltitude minimum periapsis, ignored if zero
+     * @param maxAltitude maximum periapsis, ignored if {@code null}
+     * @param objectIdPrefix international designator prefix, ignored if {@code null}
+     */
+    public List<GpHistory> fetchHistorySlice(Instant from, Instant to, double minAltitude, Double maxAltitude,
+            String objectIdPrefix) throws JsonParseException, JsonMappingException, IOException, InterruptedException {
+        GpHistoryQuery q = new GpHistoryQuery().setCredentials(credentials)
+                // Space-Track epochs have a microsecond precision
+                .addPredicate(new GreaterThan<>(GpHistoryQueryField.EPOCH, from.minusNanos(1000)))
+                .addPredicate(new LessThan<>(GpHistoryQueryField.EPOCH, to));
+        if (minAltitude < 0.0 || minAltitude > 0.0) {
+            q.addPredicate(new GreaterThan<>(GpHistoryQueryField.PERIAPSIS, minAltitude));
+        }
+        if (maxAltitude != null) {
+            q.addPredicate(new LessThan<>(GpHistoryQueryField.PERIAPSIS, maxAltitude));
+        }
+        if (objectIdPrefix != null && !objectIdPrefix.isBlank()) {
+            q.addPredicate(new StartsWith<>(GpHistoryQueryField.OBJECT_ID, objectIdPrefix.trim()));
+        }
+        return apiThrottle(q.execute());
+    }
+
+    private List<GpHistory> queryHistory(Integer id, Instant startDate, Instant endDate, double minAltitude)
             throws JsonParseException, JsonMappingException, IOException, InterruptedException {
         GpHistoryQuery q = new GpHistoryQuery().setCredentials(credentials)
                 .addPredicate(new Equal<>(GpHistoryQueryField.CATALOG_NUMBER, id));
@@ -0,0 +1,203 @@
+package com.github.donvip;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reduces the size of SVG documents produced by {@code SVGGraphics2D}:
+ * <ul>
+ * <li>path data is rewritten with relative, precision-limited
+ * coordinates,</li>
+ * <li>inline styles are hoisted into CSS classes declared once.</li>
+ * </ul>
+ */
+final class SvgCompactor {
+
+    private static final Pattern TAG = Pattern
+            .compile("<(path|rect|line|polyline|polygon|ellipse|circle|text|g)\\b[^>]*>");
+    private static final Pattern PATH_DATA = Pattern.compile("\\sd=\"([^\"]*)\"");
+    private static final Pattern STYLE = Pattern.compile("\\sstyle=\"([^\"]*)\"");
+    private static final Pattern PATH_TOKEN = Pattern
+            .compile("[A-Za-z]|[-+]?(?:\\d+\\.?\\d*|\\.\\d+)(?:[eE][-+]?\\d+)?");
+
+    private SvgCompactor() {
+        // Hide default constructor for utilities classes
+    }
+
+    /**
+     * Compacts an SVG document.
+     *
+     * @param svg SVG document
+     * @param precision number of decimal places kept in path coordinates
+     * @return the compacted SVG document
+     */
+    static String compact(String svg, int precision) {
+        Map<String, String> classes = new LinkedHashMap<>();
+        Matcher m = TAG.matcher(svg);
+        StringBuilder sb = new StringBuilder(svg.length());
+        while (m.find()) {
+            String tag = m.group();
+            Matcher d = PATH_DATA.matcher(tag);
+            if (d.find()) {
+                String path = compactPath(d.group(1), precision);
+                if (path != null) {
+                    tag = tag.substring(0, d.start(1)) + path + tag.substring(d.end(1));
+                }
+            }
+            Matcher style = STYLE.matcher(tag);
+            if (!tag.contains(" class=") && style.find()) {
+                String className = classes.computeIfAbsent(style.group(1), k -> "s" + classes.size());
+                tag = tag.substring(0, style.start()) + " class=\"" + className + '"' + tag.substring(style.end());
+            }
+            m.appendReplacement(sb, Matcher.quoteReplacement(tag));
+        }
+        m.appendTail(sb);
+        if (!classes.isEmpty()) {
+            int svgStart = sb.indexOf("<svg");
+            int insert = svgStart < 0 ? -1 : sb.indexOf(">", svgStart) + 1;
+            if (insert > 0) {
+                StringBuilder css = new StringBuilder("<style>");
+                classes.forEach((style, className) -> css.append('.').append(className).append('{').append(style)
+                        .append('}'));
+                sb.insert(insert, css.append("</style>"));
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Rewrites absolute path data with relative, precision-limited coordinates.
+     * Relative offsets are computed from rounded absolute positions so that
+     * rounding errors do not accumulate along the path.
+     *
+     * @return the compacted path data, or {@code null} if it contains unsupported
+     *         commands
+     */
+    static String compactPath(String data, int precision) {
+        List<String> tokens = new ArrayList<>();
+        Matcher m = PATH_TOKEN.matcher(data);
+        while (m.find()) {
+            tokens.add(m.group());
+        }
+        StringBuilder sb = new StringBuilder(data.length() / 2);
+        double cx = 0;
+        double cy = 0;
+        double sx = 0;
+        double sy = 0;
+        char last = 0;
+        int i = 0;
+        try {
+            while (i < tokens.size()) {
+                String token = tokens.get(i++);
+                char cmd = token.charAt(0);
+                switch (cmd) {
+                case 'M':
+                case 'L':
+                    double x = round(Double.parseDouble(tokens.get(i++)), precision);
+                    double y = round(Double.parseDouble(tokens.get(i++)), precision);
+                    if (cmd == 'M' && sb.length() == 0) {
+                        last = append(sb, 'M', last);
+                        appendNumber(sb, x, precision);
+                        appendNumber(sb, y, precision);
+                    } else if (cmd == 'L' && y == cy) {
+                        last = append(sb, 'h', last);
+                        appendNumber(sb, x - cx, precision);
+                    } else if (cmd == 'L' && x == cx) {
+                        last = append(sb, 'v', last);
+                        appendNumber(sb, y - cy, precision);
+                    } else {
+                        last = append(sb, cmd == 'M' ? 'm' : 'l', last);
+                        appendNumber(sb, x - cx, precision);
+                        appendNumber(sb, y - cy, precision);
+                    }
+                    cx = x;
+                    cy = y;
+                    if (cmd == 'M') {
+                        sx = x;
+                        sy = y;
+                        // Coordinates following a moveto are implicit linetos: always repeat the command
+                        last = 0;
+                    }
+                    break;
+                case 'Q':
+                case 'C':
+                    int pairs = cmd == 'Q' ? 2 : 3;
+                    last = append(sb, Character.toLowerCase(cmd), last);
+                    double ex = cx;
+                    double ey = cy;
+                    for (int p = 0; p < pairs; p++) {
+                        ex = round(Double.parseDouble(tokens.get(i++)), precision);
+                        ey = round(Double.parseDouble(tokens.get(i++)), precision);
+                        appendNumber(sb, ex - cx, precision);
+                        appendNumber(sb, ey - cy, precision);
+                    }
+                    cx = ex;
+                    cy = ey;
+                    break;
+                case 'Z':
+                case 'z':
+                    sb.append('z');
+                    last = 'z';
+                    cx = sx;
+                    cy = sy;
+                    break;
+                default:
+                    return null;
+                }
+            }
+        } catch (IndexOutOfBoundsException | NumberFormatException e) {
+            return null;
+        }
+        return sb.toString();
+    }
+
+    private static char append(StringBuilder sb, char cmd, char last) {
+        if (cmd != last) {
+            sb.append(cmd);
+        }
+        return cmd;
+    }
+
+    private static double round(double value, int precision) {
+        return BigDecimal.valueOf(value).setScale(precision, RoundingMode.HALF_UP).doubleValue();
+    }
+
+    private static void appendNumber(StringBuilder sb, double value, int precision) {
+        String s = BigDecimal.valueOf(value).setScale(precision, RoundingMode.HALF_UP).stripTrailingZeros()
+                .toPlainString();
+        if (s.startsWith("0.")) {
+            s = s.substring(1);
+        } else if (s.startsWith("-0.")) {
+            s = "-" + s.substring(2);
+        } else if ("-0".equals(s)) {
+            s = "0";
+        }
+        char prev = sb.length() > 0 ? sb.charAt(sb.length() - 1) : 0;
+        if (Character.isDigit(prev) || prev == '.') {
+            if (s.charAt(0) != '-' && !(s.charAt(0) == '.' && sb.lastIndexOf(".") > lastSeparator(sb))) {
+                sb.append(' ');
+            }
+        }
+        sb.append(s);
+    }
+
+    /**
+     * Returns the index of the last character in the path data which cannot be
+     * part of a number.
+     */
+    private static int lastSeparator(StringBuilder sb) {
+        for (int i = sb.length() - 1; i >= 0; i--) {
+            char c = sb.charAt(i);
+            if (!Character.isDigit(c) && c != '.') {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,265 @@
+package com.github.donvip;
+
+import static java.util.Comparator.comparingDouble;
+import static java.util.stream.Collectors.toMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * Detects GP records attributed to the wrong object in a cloud of fragments,
+ * and reassigns them to the nearest consistent track.
+ * <p>
+ * A record is an outlier when it deviates from the interpolation of its
+ * neighbours in its own track by more than the tolerance. Candidate tracks are
+ * found with a k-d tree over (epoch, apoapsis, periapsis) of all records, and
+ * the record is reassigned to the nearest track whose interpolation at the
+ * record epoch is within the tolerance.
+ */
+final class TrackConsistencyChecker {
+
+    private static final double MILLIS_PER_DAY = 86_400_000.0;
+    private static final int NEIGHBOURS = 16;
+
+    private final double tolerance;
+    private final double kmPerDay;
+
+    /**
+     * @param tolerance maximum deviation from a track, in kilometers
+     * @param kmPerDay scale of the time axis in the k-d tree: distance in
+     *            kilometers equivalent to one day
+     */
+    TrackConsistencyChecker(double tolerance, double kmPerDay) {
+        this.tolerance = tolerance;
+        this.kmPerDay = kmPerDay;
+    }
+
+    /**
+     * A GP record reduced to the values used to check track consistency.
+     * Missing apoapsis or periapsis are {@code NaN}.
+     */
+    static final class TrackPoint {
+        final int gpId;
+        final int objectId;
+        final long epoch;
+        final double apoapsis;
+        final double periapsis;
+
+        TrackPoint(int gpId, int objectId, long epoch, double apoapsis, double periapsis) {
+            this.gpId = gpId;
+            this.objectId = objectId;
+            this.epoch = epoch;
+            this.apoapsis = apoapsis;
+            this.periapsis = periapsis;
+        }
+    }
+
+    /**
+     * Points of a single object, sorted by epoch.
+     */
+    private static final class Track {
+        private final TrackPoint[] points;
+        private final long[] epochs;
+
+        private Track(List<TrackPoint> list) {
+            points = list.toArray(new TrackPoint[0]);
+            Arrays.sort(points, Comparator.comparingLong(p -> p.epoch));
+            epochs = Arrays.stream(points).mapToLong(p -> p.epoch).toArray();
+        }
+
+        /**
+         * Interpolates apoapsis and periapsis at the given epoch from the points
+         * surrounding it, optionally excluding one point.
+         *
+         * @return {apoapsis, periapsis} or {@code null} if the track has no usable
+         *         point
+         */
+        private double[] interpolate(long epoch, TrackPoint excluded) {
+            int i = Arrays.binarySearch(epochs, epoch);
+            int next = i >= 0 ? i : -i - 1;
+            int prev = next - 1;
+            while (prev >= 0 && points[prev] == excluded) {
+                prev--;
+            }
+            while (next < points.length && points[next] == excluded) {
+                next++;
+            }
+            TrackPoint a = prev >= 0 ? points[prev] : null;
+            TrackPoint b = next < points.length ? points[next] : null;
+            if (a == null && b == null) {
+                return null;
+            } else if (a == null || b == null || a.epoch == b.epoch) {
+                TrackPoint p = a != null ? a : b;
+                return new double[] { p.apoapsis, p.periapsis };
+            }
+            double f = (double) (epoch - a.epoch) / (b.epoch - a.epoch);
+            return new double[] { a.apoapsis + f * (b.apoapsis - a.apoapsis),
+                    a.periapsis + f * (b.periapsis - a.periapsis) };
+        }
+
+        private double deviation(TrackPoint p, TrackPoint excluded) {
+            double[] expected = interpolate(p.epoch, excluded);
+            return expected == null ? Double.POSITIVE_INFINITY
+                    : Math.max(Math.abs(p.apoapsis - expected[0]), Math.abs(p.periapsis - expected[1]));
+        }
+    }
+
+    /**
+     * Static k-d tree over three dimensions, stored as a permutation of point
+     * indexes: the median of each sub-range is the node splitting it.
+     */
+    private static final class KdTree {
+        private final double[][] coords;
+        private final int[] index;
+
+        private KdTree(double[][] coords) {
+            this.coords = coords;
+            this.index = IntStream.range(0, coords.length).toArray();
+            build(0, index.length, 0);
+        }
+
+        private void build(int lo, int hi, int axis) {
+            if (hi - lo > 1) {
+                int mid = (lo + hi) >>> 1;
+                select(lo, hi, mid, axis);
+                build(lo, mid, (axis + 1) % 3);
+                build(mid + 1, hi, (axis + 1) % 3);
+            }
+        }
+
+        /**
+         * Partitions {@code index[lo..hi)} in place around its {@code k}-th point
+         * along the given axis (quickselect), so that points before {@code k} are
+         * not greater and points after it are not less.
+         */
+        private void select(int lo, int hi, int k, int axis) {
+            while (hi - lo > 1) {
+                double pivot = coords[index[(lo + hi) >>> 1]][axis];
+                // Three-way partition, robust to points sharing the same coordinate
+                int lt = lo;
+                int gt = hi;
+                int i = lo;
+                while (i < gt) {
+                    double v = coords[index[i]][axis];
+                    if (v < pivot) {
+                        swap(lt++, i++);
+                    } else if (v > pivot) {
+                        swap(i, --gt);
+                    } else {
+                        i++;
+                    }
+                }
+                if (k < lt) {
+                    hi = lt;
+                } else if (k >= gt) {
+                    lo = gt;
+                } else {
+                    return;
+                }
+            }
+        }
+
+        private void swap(int i, int j) {
+            int tmp = index[i];
+            index[i] = index[j];
+            index[j] = tmp;
+        }
+
+        /**
+         * Finds the {@code k} nearest points of the query point not belonging to
+         * the excluded object.
+         *
+         * @return indexes of nearest points, nearest first
+         */
+        private List<Integer> nearest(double[] query, int k, int excludedObjectId, TrackPoint[] points) {
+            PriorityQueue<double[]> heap = new PriorityQueue<>(comparingDouble((double[] e) -> e[0]).reversed());
+            search(0, index.length, 0, query, k, excludedObjectId, points, heap);
+            List<Integer> result = new ArrayList<>();
+            while (!heap.isEmpty()) {
+                result.add(0, (int) heap.poll()[1]);
+            }
+            return result;
+        }
+
+        private void search(int lo, int hi, int axis, double[] query, int k, int excludedObjectId,
+                TrackPoint[] points, PriorityQueue<double[]> heap) {
+            if (lo >= hi) {
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            int node = index[mid];
+            if (points[node].objectId != excludedObjectId) {
+                double d = 0;
+                for (int a = 0; a < 3; a++) {
+                    d += (coords[node][a] - query[a]) * (coords[node][a] - query[a]);
+                }
+                if (heap.size() < k) {
+                    heap.add(new double[] { d, node });
+                } else if (d < heap.peek()[0]) {
+                    heap.poll();
+                    heap.add(new double[] { d, node });
+                }
+            }
+            double delta = query[axis] - coords[node][axis];
+            int nextAxis = (axis + 1) % 3;
+            if (delta < 0) {
+                search(lo, mid, nextAxis, query, k, excludedObjectId, points, heap);
+                if (heap.size() < k || delta * delta < heap.peek()[0]) {
+                    search(mid + 1, hi, nextAxis, query, k, excludedObjectId, points, heap);
+                }
+            } else {
+                search(mid + 1, hi, nextAxis, query, k, excludedObjectId, points, heap);
+                if (heap.size() < k || delta * delta < heap.peek()[0]) {
+                    search(lo, mid, nextAxis, query, k, excludedObjectId, points, heap);
+                }
+            }
+        }
+    }
+
+    /**
+     * Computes the reassignment of inconsistent records.
+     *
+     * @param points all records of all objects
+     * @return map of reassigned object id per GP id
+     */
+    Map<Integer, Integer> reassign(List<TrackPoint> points) {
+        Map<Integer, List<TrackPoint>> byObject = new HashMap<>();
+        points.forEach(p -> byObject.computeIfAbsent(p.objectId, k -> new ArrayList<>()).add(p));
+        if (byObject.size() < 2) {
+            return Map.of();
+        }
+        Map<Integer, Track> tracks = byObject.entrySet().stream()
+                .collect(toMap(Map.Entry::getKey, e -> new Track(e.getValue())));
+
+        TrackPoint[] all = points.toArray(new TrackPoint[0]);
+        double[][] coords = Arrays.stream(all).map(this::coordinates).toArray(double[][]::new);
+        KdTree tree = new KdTree(coords);
+
+        return IntStream.range(0, all.length).parallel().filter(i -> {
+            TrackPoint p = all[i];
+            Track track = tracks.get(p.objectId);
+            return track.points.length > 2 && track.deviation(p, p) > tolerance;
+        }).boxed().map(i -> {
+            TrackPoint p = all[i];
+            Set<Integer> candidates = new LinkedHashSet<>();
+            tree.nearest(coords[i], NEIGHBOURS, p.objectId, all).forEach(n -> candidates.add(all[n].objectId));
+            Optional<Integer> target = candidates.stream()
+                    .filter(id -> tracks.get(id).deviation(p, null) <= tolerance).findFirst();
+            return target.map(id -> new int[] { p.gpId, id }).orElse(null);
+        }).filter(Objects::nonNull).collect(toMap(r -> r[0], r -> r[1], (a, b) -> a));
+    }
+
+    private double[] coordinates(TrackPoint p) {
+        return new double[] { p.epoch / MILLIS_PER_DAY * kmPerDay, p.apoapsis, p.periapsis };
+    }
+}
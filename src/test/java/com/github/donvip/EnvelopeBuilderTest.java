@@ -0,0 +1,41 @@
+package com.github.donvip;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import org.junit.jupiter.api.Test;
+
+class EnvelopeBuilderTest {
+
+    @Test
+    void quantilesInterpolateBetweenSortedValues() {
+        assertThat(EnvelopeBuilder.quantiles(new float[] { 5, 1, 3, 2, 4 }, 5))
+                .containsExactly(new double[] { 1.0, 1.4, 2.0, 3.0, 4.0, 4.6, 5.0 }, within(1e-9));
+    }
+
+    @Test
+    void quantilesOnlyConsiderFirstValues() {
+        assertThat(EnvelopeBuilder.quantiles(new float[] { 400, 200, 0, 0 }, 2))
+                .containsExactly(new double[] { 200, 220, 250, 300, 350, 380, 400 }, within(1e-9));
+    }
+
+    @Test
+    void quantilesOfSingleValue() {
+        assertThat(EnvelopeBuilder.quantiles(new float[] { 7 }, 1))
+                .containsExactly(new double[] { 7, 7, 7, 7, 7, 7, 7 }, within(1e-9));
+    }
+
+    @Test
+    void quantilesOfNoValue() {
+        assertThat(EnvelopeBuilder.quantiles(new float[] { 1, 2 }, 0)).isNull();
+    }
+
+    @Test
+    void meansCarryValuesForwardOverBucketsWithoutSample() {
+        float[] means = EnvelopeBuilder.means(new double[] { 0, 300, 0, 820 }, new int[] { 0, 1, 0, 2 });
+        assertThat(Float.isNaN(means[0])).isTrue();
+        assertThat(means[1]).isEqualTo(300f);
+        assertThat(means[2]).isEqualTo(300f);
+        assertThat(means[3]).isEqualTo(410f);
+    }
+}
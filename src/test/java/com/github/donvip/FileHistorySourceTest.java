@@ -0,0 +1,125 @@
+package com.github.donvip;
+
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.github.donvip.GpHistoryQuery.GpHistory;
+
+class FileHistorySourceTest {
+
+    @TempDir
+    Path directory;
+
+    private final FileHistorySource source = new FileHistorySource();
+
+    @BeforeEach
+    void setUp() {
+        // Map files as 16-byte regions, so that records and tokens span region boundaries
+        source.regionShift = 4;
+        ReflectionTestUtils.setField(source, "historyFiles", List.of(directory.toString()));
+    }
+
+    private void write(String name, String content) throws IOException {
+        Files.writeString(directory.resolve(name), content, StandardCharsets.UTF_8);
+    }
+
+    private List<Integer> gpIds(Integer id, Instant startDate, Instant endDate, double minAltitude)
+            throws IOException {
+        return source.fetchHistory(id, startDate, endDate, minAltitude).stream().map(GpHistory::getGpId)
+                .collect(toList());
+    }
+
+    private static String json(int gpId, int id, String name, String epoch) {
+        return String.format("{\"GP_ID\":\"%d\", \"NORAD_CAT_ID\": \"%d\", \"OBJECT_NAME\":\"%s\", "
+                + "\"EPOCH\":\"%s\", \"PERIAPSIS\":\"400.5\", \"APOAPSIS\":\"420.5\"}", gpId, id, name, epoch);
+    }
+
+    @Test
+    void readsJsonArray() throws IOException {
+        write("history.json", "[" + json(3, 25544, "ISS (ZARYA)", "2021-07-03T00:00:00.000000") + ",\n"
+                + json(2, 48274, "CSS (TIANHE)", "2021-07-02T00:00:00.000000") + ",\n"
+                + json(1, 25544, "ISS (ZARYA)", "2021-07-01T00:00:00.000000") + "]");
+
+        List<GpHistory> history = source.fetchHistory(25544, null, null, 0.0);
+        assertThat(history.stream().map(GpHistory::getGpId).collect(toList())).containsExactly(1, 3);
+        assertThat(history.get(0).getObjectName()).isEqualTo("ISS (ZARYA)");
+        assertThat(history.get(0).getPeriapsis()).isEqualTo(400.5);
+        assertThat(gpIds(48274, null, null, 0.0)).containsExactly(2);
+        assertThat(gpIds(12345, null, null, 0.0)).isEmpty();
+    }
+
+    @Test
+    void readsJsonLinesWithBracesInStrings() throws IOException {
+        write("history.jsonl", json(1, 25544, "ISS {\\\"ZARYA\\\"}", "2021-07-01T00:00:00.000000") + "\n"
+                + json(2, 25544, "ISS }", "2021-07-02T00:00:00.000000") + "\n");
+
+        List<GpHistory> history = source.fetchHistory(25544, null, null, 0.0);
+        assertThat(history.stream().map(GpHistory::getObjectName).collect(toList()))
+                .containsExactly("ISS {\"ZARYA\"}", "ISS }");
+    }
+
+    @Test
+    void readsCsvWithQuotedFieldsAndDropsIncompleteRecords() throws IOException {
+        write("history.csv", "GP_ID,NORAD_CAT_ID,OBJECT_NAME,EPOCH,PERIAPSIS,APOAPSIS\n"
+                + "1,25544,\"ISS, \"\"ZARYA\"\"\",2021-07-01T00:00:00.000000,400.5,420.5\n"
+                + "2,48274,\"CSS\nTIANHE\",2021-07-02T00:00:00.000000,380.5,390.5\n"
+                + "3,25544,ISS,2021-07-03T00:00:00.000000,,420.5\n"
+                + "4,\"25544\",ISS,2021-07-04T00:00:00.000000,400.5,420.5\n");
+
+        List<GpHistory> history = source.fetchHistory(25544, null, null, 0.0);
+        assertThat(history.stream().map(GpHistory::getGpId).collect(toList())).containsExactly(1, 4);
+        assertThat(history.get(0).getObjectName()).isEqualTo("ISS, \"ZARYA\"");
+        assertThat(history.get(0).getApoapsis()).isEqualTo(420.5);
+        assertThat(history.get(1).getPeriapsis()).isEqualTo(400.5);
+        assertThat(source.fetchHistory(48274, null, null, 0.0).get(0).getObjectName()).isEqualTo("CSS\nTIANHE");
+    }
+
+    @Test
+    void readsOmmXml() throws IOException {
+        write("history.xml", "<?xml version=\"1.0\"?>\n<ndm>\n" + omm(1, 25544, "2021-07-01T00:00:00.000000")
+                + omm(2, 48274, "2021-07-02T00:00:00.000000") + omm(3, 25544, "2021-07-03T00:00:00.000000")
+                + "</ndm>\n");
+
+        List<GpHistory> history = source.fetchHistory(25544, null, null, 0.0);
+        assertThat(history.stream().map(GpHistory::getGpId).collect(toList())).containsExactly(1, 3);
+        assertThat(history.get(0).getObjectName()).isEqualTo("ISS & CO");
+        assertThat(history.get(0).getApoapsis()).isEqualTo(420.5);
+    }
+
+    private static String omm(int gpId, int id, String epoch) {
+        return "<omm id=\"CCSDS_OMM_VERS\" version=\"2.0\">\n<body><segment><metadata>\n"
+                + "<OBJECT_NAME>ISS &amp; CO</OBJECT_NAME>\n</metadata><data><meanElements>\n"
+                + "<EPOCH>" + epoch + "</EPOCH>\n</meanElements><tleParameters>\n"
+                + "<NORAD_CAT_ID>" + id + "</NORAD_CAT_ID>\n</tleParameters><userDefinedParameters>\n"
+                + "<USER_DEFINED parameter=\"APOAPSIS\">420.5</USER_DEFINED>\n"
+                + "<USER_DEFINED parameter=\"PERIAPSIS\">400.5</USER_DEFINED>\n"
+                + "<USER_DEFINED parameter=\"GP_ID\">" + gpId + "</USER_DEFINED>\n"
+                + "</userDefinedParameters></data></segment></body>\n</omm>\n";
+    }
+
+    @Test
+    void mergesOverlappingFilesAndFiltersRecords() throws IOException {
+        write("a.json", "[" + json(1, 25544, "ISS", "2021-07-01T00:00:00.000000") + ","
+                + json(2, 25544, "ISS", "2021-07-02T00:00:00.000000") + "]");
+        write("b.csv", "GP_ID,NORAD_CAT_ID,EPOCH,PERIAPSIS,APOAPSIS\n2,25544,2021-07-02T00:00:00.000000,400.5,420.5\n"
+                + "3,25544,2021-07-03T00:00:00.000000,150.5,420.5\n"
+                + "4,25544,2021-07-04T00:00:00.000000,400.5,420.5\n");
+        write("ignored.txt", "4,25544");
+
+        assertThat(gpIds(25544, null, null, 0.0)).containsExactly(1, 2, 3, 4);
+        assertThat(gpIds(25544, Instant.parse("2021-07-01T00:00:00Z"), Instant.parse("2021-07-04T00:00:00Z"), 200.0))
+                .containsExactly(2);
+    }
+}
@@ -0,0 +1,133 @@
+package com.github.donvip;
+
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.threeten.extra.scale.UtcInstant;
+
+import com.github.donvip.GpHistoryQuery.GpHistory;
+
+class HistoryStoreTest {
+
+    @TempDir
+    Path directory;
+
+    private final HistoryStore store = new HistoryStore();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(store, "directory", directory.toString());
+    }
+
+    private static GpHistory gp(int gpId, String epoch, double periapsis) {
+        GpHistory gp = new GpHistory();
+        gp.setGpId(gpId);
+        gp.setEpoch(UtcInstant.of(Instant.parse(epoch)));
+        gp.setApoapsis(periapsis + 100.0);
+        gp.setPeriapsis(periapsis);
+        return gp;
+    }
+
+    private static GpHistory gp(int gpId, String epoch) {
+        return gp(gpId, epoch, 400.0);
+    }
+
+    private List<Integer> gpIds(Integer id, Instant startDate, Instant endDate, double minAltitude)
+            throws IOException {
+        return store.read(id, startDate, endDate, minAltitude).stream().map(GpHistory::getGpId).collect(toList());
+    }
+
+    @Test
+    void mergeSortsAndDeduplicatesNewRecords() throws IOException {
+        store.merge(25544, new ArrayList<>(List.of(gp(3, "2021-07-03T00:00:00Z"), gp(1, "2021-07-01T00:00:00Z"),
+                gp(3, "2021-07-03T00:00:00Z"), gp(2, "2021-07-02T00:00:00Z"))));
+
+        assertThat(gpIds(25544, null, null, 0.0)).containsExactly(1, 2, 3);
+    }
+
+    @Test
+    void mergeInterleavesNewRecordsWithStoredOnes() throws IOException {
+        store.merge(25544, new ArrayList<>(List.of(gp(2, "2021-07-02T00:00:00Z"), gp(4, "2021-07-04T00:00:00Z"))));
+        store.merge(25544, new ArrayList<>(List.of(gp(5, "2021-07-05T00:00:00Z"), gp(4, "2021-07-04T00:00:00Z"),
+                gp(1, "2021-07-01T00:00:00Z"), gp(3, "2021-07-03T00:00:00Z"), gp(2, "2021-07-02T00:00:00Z"))));
+
+        assertThat(gpIds(25544, null, null, 0.0)).containsExactly(1, 2, 3, 4, 5);
+    }
+
+    @Test
+    void mergeKeepsRecordsOfSameEpochOrderedByGpId() throws IOException {
+        store.merge(25544, new ArrayList<>(List.of(gp(2, "2021-07-01T00:00:00Z"))));
+        store.merge(25544, new ArrayList<>(List.of(gp(3, "2021-07-01T00:00:00Z"), gp(1, "2021-07-01T00:00:00Z"))));
+
+        assertThat(gpIds(25544, null, null, 0.0)).containsExactly(1, 2, 3);
+    }
+
+    @Test
+    void readExcludesWindowBoundsAndLowRecords() throws IOException {
+        store.merge(25544, new ArrayList<>(List.of(gp(1, "2021-07-01T00:00:00Z"), gp(2, "2021-07-02T00:00:00Z"),
+                gp(3, "2021-07-03T00:00:00Z", 150.0), gp(4, "2021-07-04T00:00:00Z"),
+                gp(5, "2021-07-05T00:00:00Z"))));
+
+        assertThat(gpIds(25544, Instant.parse("2021-07-01T00:00:00Z"), Instant.parse("2021-07-05T00:00:00Z"), 200.0))
+                .containsExactly(2, 4);
+    }
+
+    @Test
+    void unknownObjects() throws IOException {
+        assertThat(store.ids()).isEmpty();
+        assertThat(gpIds(25544, null, null, 0.0)).isEmpty();
+
+        store.merge(25544, new ArrayList<>(List.of(gp(1, "2021-07-01T00:00:00Z"))));
+        store.merge(48274, new ArrayList<>(List.of(gp(2, "2021-07-01T00:00:00Z"))));
+
+        assertThat(store.ids()).containsExactly(25544, 48274);
+    }
+
+    private static Instant at(String date) {
+        return Instant.parse(date + "T00:00:00Z");
+    }
+
+    private List<String> gaps(Instant startDate, Instant endDate, Instant now) throws IOException {
+        return store.gaps(25544, startDate, endDate, now).stream().map(g -> g[0] + "/" + g[1]).collect(toList());
+    }
+
+    @Test
+    void gapsAreBoundedByCurrentTime() throws IOException {
+        assertThat(gaps(null, null, at("2021-07-10"))).containsExactly(Instant.MIN + "/2021-07-10T00:00:00Z");
+        assertThat(gaps(at("2021-07-01"), at("2021-08-01"), at("2021-07-10")))
+                .containsExactly("2021-07-01T00:00:00Z/2021-07-10T00:00:00Z");
+    }
+
+    @Test
+    void gapsExcludeCoveredWindows() throws IOException {
+        store.cover(25544, at("2021-07-05"), at("2021-07-08"));
+        store.cover(25544, at("2021-07-01"), at("2021-07-03"));
+        store.cover(25544, at("2021-07-02"), at("2021-07-04"));
+
+        assertThat(gaps(null, at("2021-07-10"), at("2021-08-01"))).containsExactly(
+                Instant.MIN + "/2021-07-01T00:00:00Z", "2021-07-04T00:00:00Z/2021-07-05T00:00:00Z",
+                "2021-07-08T00:00:00Z/2021-07-10T00:00:00Z");
+        assertThat(gaps(at("2021-07-02"), at("2021-07-03"), at("2021-08-01"))).isEmpty();
+        assertThat(gaps(at("2021-07-06"), null, at("2021-07-09")))
+                .containsExactly("2021-07-08T00:00:00Z/2021-07-09T00:00:00Z");
+    }
+
+    @Test
+    void coverMergesUnboundedWindows() throws IOException {
+        store.cover(25544, at("2021-07-05"), at("2021-07-08"));
+        store.cover(25544, Instant.MIN, at("2021-07-06"));
+
+        assertThat(gaps(null, null, at("2021-07-08"))).isEmpty();
+        assertThat(store.ids()).isEmpty();
+    }
+}
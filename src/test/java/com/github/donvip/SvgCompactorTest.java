@@ -0,0 +1,57 @@
+package com.github.donvip;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class SvgCompactorTest {
+
+    @Test
+    void compactPathUsesRelativeHorizontalAndVerticalLines() {
+        assertThat(SvgCompactor.compactPath("M 10.0 20.0 L 30.0 20.0 L 30.0 45.0 L 10.5 40.25 Z", 2))
+                .isEqualTo("M10 20h20v25l-19.5-4.75z");
+    }
+
+    @Test
+    void compactPathOmitsSeparatorsWhenUnambiguous() {
+        // A second dot starts a new number, as does a minus sign
+        assertThat(SvgCompactor.compactPath("M 1.26 2.0 L 1.5 2.5 L 1.25 2.75", 2)).isEqualTo("M1.26 2l.24.5-.25.25");
+    }
+
+    @Test
+    void compactPathRoundsAbsolutePositions() {
+        assertThat(SvgCompactor.compactPath("M 1.26 2.0 L 1.5 2.5 L 1.25 2.75", 1)).isEqualTo("M1.3 2l.2.5-.2.3");
+        assertThat(SvgCompactor.compactPath("M 1.004 2.006 L 3.0 4.0", 2)).isEqualTo("M1 2.01l2 1.99");
+    }
+
+    @Test
+    void compactPathRepeatsCommandsAfterMoveTo() {
+        assertThat(SvgCompactor.compactPath("M 0 0 L 1.0 1.0 M 5.0 5.0 L 6.0 7.0", 2)).isEqualTo("M0 0l1 1m4 4l1 2");
+    }
+
+    @Test
+    void compactPathRestartsFromSubpathStartAfterClosePath() {
+        assertThat(SvgCompactor.compactPath("M 5.0 5.0 L 6.0 7.0 Z L 1.0 1.0", 2)).isEqualTo("M5 5l1 2zl-4-4");
+    }
+
+    @Test
+    void compactPathSupportsCurves() {
+        assertThat(SvgCompactor.compactPath("M 0 0 C 1.0 1.0 2.0 2.0 3.0 0 Z", 2)).isEqualTo("M0 0c1 1 2 2 3 0z");
+        assertThat(SvgCompactor.compactPath("M 1 1 Q 2.0 3.0 4.0 1.0", 2)).isEqualTo("M1 1q1 2 3 0");
+    }
+
+    @Test
+    void compactPathRejectsUnsupportedOrTruncatedData() {
+        assertThat(SvgCompactor.compactPath("M 0 0 A 1 1 0 0 0 1 1", 2)).isNull();
+        assertThat(SvgCompactor.compactPath("M 0 0 L 1", 2)).isNull();
+    }
+
+    @Test
+    void compactHoistsStylesIntoClasses() {
+        String svg = "<svg width=\"10\"><path style=\"fill:red\" d=\"M 0 0 L 1.0 0\"/>"
+                + "<rect style=\"fill:red\"/><rect style=\"fill:blue\"/></svg>";
+        assertThat(SvgCompactor.compact(svg, 2))
+                .isEqualTo("<svg width=\"10\"><style>.s0{fill:red}.s1{fill:blue}</style>"
+                        + "<path class=\"s0\" d=\"M0 0h1\"/><rect class=\"s0\"/><rect class=\"s1\"/></svg>");
+    }
+}